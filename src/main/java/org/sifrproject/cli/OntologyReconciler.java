@@ -8,18 +8,20 @@ import org.sifrproject.cli.enrichment.OntologyCUIProcessor;
 import org.sifrproject.configuration.CommandlineHandler;
 import org.sifrproject.configuration.CUIProcessorCommandlineHandler;
 import org.sifrproject.ontology.code.CodeFinder;
-import org.sifrproject.ontology.code.CompositeCodeFinder;
+import org.sifrproject.ontology.code.CodeIndex;
+import org.sifrproject.ontology.code.CodeRules;
 import org.sifrproject.ontology.cuis.CUIOntologyDelegate;
 import org.sifrproject.ontology.cuis.CUIOntologyDelegateImpl;
 import org.sifrproject.ontology.mapping.DefaultOntologyMappingDelegate;
 import org.sifrproject.ontology.mapping.OntologyMappingDelegate;
-import org.sifrproject.ontology.umls.SQLUMLSDelegate;
+import org.sifrproject.ontology.umls.UMLSDelegateFactory;
 import org.sifrproject.ontology.umls.UMLSDelegate;
 import org.sifrproject.stats.CUIOntologyStats;
 import org.sifrproject.stats.StatsHandler;
+import org.sifrproject.utils.LoadMode;
+import org.sifrproject.utils.cache.TwoTierCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.JedisPool;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -71,7 +73,7 @@ public final class OntologyReconciler extends AbstractOntologyProcessor {
 
         final String ontologyName = sourceDelegate.getOntologyName();
 
-        codeFinder = new CompositeCodeFinder(sourceDelegate);
+        codeFinder = CodeIndex.build(sourceDelegate, CodeRules.fromProperties(properties));
 
         try {
             unmappedClasses = new PrintWriter(ontologyName + "_unmapped_concepts.txt");
@@ -235,19 +237,12 @@ public final class OntologyReconciler extends AbstractOntologyProcessor {
         final CommandlineHandler commandlineHandler = new CUIProcessorCommandlineHandler();
         commandlineHandler.processCommandline(args, properties);
 
-        final JedisPool jedisPool = new JedisPool(
-                properties.getProperty(CONFIG_REDIS_HOST),
-                Integer.valueOf(properties.getProperty(CONFIG_REDIS_PORT))
-        );
+        final TwoTierCache cache = TwoTierCache.fromProperties(properties);
 
         /*
          * Creating the UMLS delegate to access UMLS over SQL
          */
-        final String jdbc = properties.getProperty(CONFIG_UMLS_JDBC);
-        final String dbUser = properties.getProperty(CONFIG_UMLS_USER);
-        final String dbpass = properties.getProperty(CONFIG_UMLS_PASSWORD);
-        final String dbumls = properties.getProperty(CONFIG_UMLS_DB);
-        final UMLSDelegate umlsDelegate = new SQLUMLSDelegate(jdbc, dbUser, dbpass, dbumls, jedisPool);
+        final UMLSDelegate umlsDelegate = UMLSDelegateFactory.create(properties, cache);
 
 
           /*
@@ -258,9 +253,10 @@ public final class OntologyReconciler extends AbstractOntologyProcessor {
         final String mappingsEndpoint = properties.getProperty(CONFIG_MAPPINGS_ENDPOINT);
 
         final String outputFileSuffix = properties.getProperty(CONFIG_OUTPUT_FILE_SUFFIX);
+        final LoadMode loadMode = LoadMode.fromProperties(properties);
 
-        final CUIOntologyDelegate sourceDelegate = new CUIOntologyDelegateImpl(sourceEndpoint, outputFileSuffix, jedisPool);
-        final CUIOntologyDelegate targetDelegate = new CUIOntologyDelegateImpl(targetEndpoint, outputFileSuffix, jedisPool);
+        final CUIOntologyDelegate sourceDelegate = new CUIOntologyDelegateImpl(sourceEndpoint, outputFileSuffix, loadMode);
+        final CUIOntologyDelegate targetDelegate = new CUIOntologyDelegateImpl(targetEndpoint, outputFileSuffix, loadMode);
 
         final String sourceName = sourceDelegate.getOntologyName();
         final String targetName = targetDelegate.getOntologyName();
@@ -269,7 +265,8 @@ public final class OntologyReconciler extends AbstractOntologyProcessor {
                 mappingsEndpoint,
                 sourceName,
                 targetName,
-                jedisPool
+                cache,
+                loadMode
         );
 
 
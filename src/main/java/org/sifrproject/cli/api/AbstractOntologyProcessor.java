@@ -11,16 +11,21 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
 
 public abstract class AbstractOntologyProcessor implements OntologyProcessor {
 
     @SuppressWarnings("all")
     protected AbstractOntologyProcessor(final StatsHandler ontologyStats, final CUIOntologyDelegate sourceDelegate, final CUIOntologyDelegate targetDelegate, final OntologyMappingDelegate mappingDelegate) {
+        this(ontologyStats, sourceDelegate, targetDelegate, mappingDelegate, new ClassProcessingScheduler());
+    }
+
+    @SuppressWarnings("all")
+    protected AbstractOntologyProcessor(final StatsHandler ontologyStats, final CUIOntologyDelegate sourceDelegate, final CUIOntologyDelegate targetDelegate, final OntologyMappingDelegate mappingDelegate, final ClassProcessingScheduler scheduler) {
         this.ontologyStats = ontologyStats;
         this.sourceDelegate = sourceDelegate;
         this.targetDelegate = targetDelegate;
         this.mappingDelegate = mappingDelegate;
+        this.scheduler = scheduler;
         progressCount = new AtomicInteger(0);
     }
 
@@ -31,10 +36,11 @@ public abstract class AbstractOntologyProcessor implements OntologyProcessor {
     protected final CUIOntologyDelegate sourceDelegate;
     protected final CUIOntologyDelegate targetDelegate;
     protected final OntologyMappingDelegate mappingDelegate;
+    private final ClassProcessingScheduler scheduler;
 
     private final AtomicInteger progressCount;
 
-    private int totalClasses;
+    private volatile int totalClasses;
 
 
     protected static final Logger logger = LoggerFactory.getLogger(AbstractOntologyProcessor.class);
@@ -47,16 +53,17 @@ public abstract class AbstractOntologyProcessor implements OntologyProcessor {
 
 
     /**
-     * Process the ontology classes to look for CUIs and TUIs
+     * Process the ontology classes to look for CUIs and TUIs, processSourceClass is called concurrently by the workers
+     * of the scheduler and must only accumulate its results in thread-safe structures
      */
 
     protected void processSourceOntology() {
         final List<OntClass> classList = sourceDelegate.getClasses();
         totalClasses = classList.size();
+        progressCount.set(0);
         logger.info("Processing {} source classes...", totalClasses);
-        //Iterate over all classes in parallel, automatically dispatched by the java stream on all available CPUs
-        final Stream<OntClass> ontClassStream = classList.parallelStream();
-        ontClassStream.forEachOrdered(this::processSourceClass);
+        //Iterate over all classes in parallel, chunks of classes are dispatched on the work-stealing scheduler
+        scheduler.forEach(classList, this::processSourceClass);
         logger.info("Done!");
         //Writing stats
         ontologyStats.writeStatistics();
@@ -68,10 +75,10 @@ public abstract class AbstractOntologyProcessor implements OntologyProcessor {
     protected void processTargetOntology() {
         final List<OntClass> classList = sourceDelegate.getClasses();
         totalClasses = classList.size();
+        progressCount.set(0);
         logger.info("Processing {} target classes...", totalClasses);
-        //Iterate over all classes in parallel, automatically dispatched by the java stream on all available CPUs
-        final Stream<OntClass> ontClassStream = classList.parallelStream();
-        ontClassStream.forEachOrdered(this::processTargetClass);
+        //Iterate over all classes in parallel, chunks of classes are dispatched on the work-stealing scheduler
+        scheduler.forEach(classList, this::processTargetClass);
         logger.info("Done!");
         //Writing stats
         ontologyStats.writeStatistics();
@@ -0,0 +1,113 @@
+package org.sifrproject.cli.api;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.sifrproject.configuration.ConfigurationConstants.CONFIG_CHUNK_SIZE;
+import static org.sifrproject.configuration.ConfigurationConstants.CONFIG_PARALLELISM;
+
+/**
+ * Dispatches the processing of ontology classes on a dedicated work-stealing pool. The class list is recursively split
+ * into chunks, idle workers steal the pending halves of busy workers, so that slow classes (UMLS or Redis bound) do not
+ * leave the other CPUs idle.
+ */
+public final class ClassProcessingScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassProcessingScheduler.class);
+
+    /**
+     * Number of chunks per worker when the chunk size is computed automatically
+     */
+    private static final int CHUNKS_PER_WORKER = 16;
+
+    private final int parallelism;
+    private final int chunkSize;
+
+    /**
+     * @param parallelism The number of worker threads, all available processors are used if {@code <= 0}
+     * @param chunkSize   The number of classes processed sequentially by a worker before looking for more work,
+     *                    computed from the number of classes and the parallelism if {@code <= 0}
+     */
+    public ClassProcessingScheduler(final int parallelism, final int chunkSize) {
+        final Runtime runtime = Runtime.getRuntime();
+        this.parallelism = (parallelism > 0) ? parallelism : runtime.availableProcessors();
+        this.chunkSize = chunkSize;
+    }
+
+    public ClassProcessingScheduler() {
+        this(0, 0);
+    }
+
+    public static ClassProcessingScheduler fromProperties(final Properties properties) {
+        final int parallelism = Integer.valueOf(properties.getProperty(CONFIG_PARALLELISM, "0"));
+        final int chunkSize = Integer.valueOf(properties.getProperty(CONFIG_CHUNK_SIZE, "0"));
+        return new ClassProcessingScheduler(parallelism, chunkSize);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Apply the action to all the elements of the list in parallel and wait for the completion of all the workers.
+     * Exceptions thrown by the action are propagated to the caller.
+     *
+     * @param elements The elements to process
+     * @param action   The processing to apply to each element, must be thread-safe
+     * @param <T>      The type of the elements
+     */
+    public <T> void forEach(final List<T> elements, final Consumer<? super T> action) {
+        final int effectiveChunkSize = (chunkSize > 0) ? chunkSize :
+                Math.max(1, elements.size() / (parallelism * CHUNKS_PER_WORKER));
+        logger.info("Dispatching {} elements on {} workers (chunks of {})...", elements.size(), parallelism, effectiveChunkSize);
+
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ChunkTask<>(elements, 0, elements.size(), effectiveChunkSize, action));
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class ChunkTask<T> extends RecursiveAction {
+        private final List<T> elements;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final Consumer<? super T> action;
+
+        private ChunkTask(final List<T> elements, final int from, final int to, final int chunkSize, final Consumer<? super T> action) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if ((to - from) <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    action.accept(elements.get(i));
+                }
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask<>(elements, from, middle, chunkSize, action),
+                        new ChunkTask<>(elements, middle, to, chunkSize, action));
+            }
+        }
+    }
+}
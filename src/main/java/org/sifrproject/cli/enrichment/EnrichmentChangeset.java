@@ -0,0 +1,158 @@
+package org.sifrproject.cli.enrichment;
+
+
+import org.sifrproject.ontology.mapping.Mapping;
+import org.sifrproject.utils.collections.IntSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Accumulates the changes to apply to the source ontology while the classes are processed concurrently.
+ * The changes are recorded in one {@link ClassChanges} entry per class, each class being processed by a single worker,
+ * workers never contend on a shared monitor or collection: the only shared structure is the concurrent map of entries
+ * (striped internally). The changes are consolidated once by {@link #merge()} at the beginning of the update step.
+ * The CUIs and TUIs are kept in their integer form until they are written to the model.
+ */
+final class EnrichmentChangeset {
+
+    private final ConcurrentMap<String, ClassChanges> changes = new ConcurrentHashMap<>();
+
+    private boolean merged;
+
+    private final Map<String, IntSet> cuisToAdd = new LinkedHashMap<>();
+    private final Map<String, IntSet> tuisToAdd = new LinkedHashMap<>();
+    private final Map<String, IntSet> pendingTUILookups = new LinkedHashMap<>();
+    private final Map<String, String> codesToAdd = new LinkedHashMap<>();
+    private final Map<String, IntSet> cuisToPurgeFromAltLabel = new LinkedHashMap<>();
+    private final Collection<Mapping> mappingsToAdd = new ArrayList<>();
+    private final Collection<String> cuiAddedNotesToAdd = new ArrayList<>();
+
+    private ClassChanges forClass(final String classURI) {
+        return changes.computeIfAbsent(classURI, uri -> new ClassChanges());
+    }
+
+    void addCUIs(final String classURI, final IntSet cuis) {
+        forClass(classURI).cuis = cuis;
+    }
+
+    void addTUIs(final String classURI, final IntSet tuis) {
+        forClass(classURI).tuis = tuis;
+    }
+
+    /**
+     * Defer the lookup of the TUIs of the class in UMLS, so that the lookups of all the classes are resolved together
+     * in a batch after the merge (see getPendingTUILookups and resolveTUIs)
+     *
+     * @param classURI The URI of the class
+     * @param cuis     The CUIs of the class, whose TUIs are to be added to the class
+     */
+    void addTUIsFromCUIs(final String classURI, final IntSet cuis) {
+        forClass(classURI).cuisForTUILookup = cuis;
+    }
+
+    void addCode(final String classURI, final String code) {
+        forClass(classURI).code = code;
+    }
+
+    void purgeCUIsFromAltLabel(final String classURI, final IntSet cuis) {
+        forClass(classURI).cuisToPurgeFromAltLabel = cuis;
+    }
+
+    void addMappings(final String classURI, final Collection<Mapping> mappings) {
+        if (!mappings.isEmpty()) {
+            forClass(classURI).mappings = mappings;
+        }
+    }
+
+    void addCUIAddedNote(final String classURI) {
+        forClass(classURI).cuiAddedNote = true;
+    }
+
+    /**
+     * Consolidate the per-class changes, must be called once all the workers are done and before accessing the changes
+     */
+    synchronized void merge() {
+        if (!merged) {
+            for (final Map.Entry<String, ClassChanges> entry : changes.entrySet()) {
+                final String classURI = entry.getKey();
+                final ClassChanges classChanges = entry.getValue();
+                if (classChanges.cuis != null) {
+                    cuisToAdd.put(classURI, classChanges.cuis);
+                }
+                if (classChanges.tuis != null) {
+                    tuisToAdd.put(classURI, classChanges.tuis);
+                }
+                if (classChanges.cuisForTUILookup != null) {
+                    pendingTUILookups.put(classURI, classChanges.cuisForTUILookup);
+                }
+                if (classChanges.code != null) {
+                    codesToAdd.put(classURI, classChanges.code);
+                }
+                if (classChanges.cuisToPurgeFromAltLabel != null) {
+                    cuisToPurgeFromAltLabel.put(classURI, classChanges.cuisToPurgeFromAltLabel);
+                }
+                if (classChanges.mappings != null) {
+                    mappingsToAdd.addAll(classChanges.mappings);
+                }
+                if (classChanges.cuiAddedNote) {
+                    cuiAddedNotesToAdd.add(classURI);
+                }
+            }
+            changes.clear();
+            merged = true;
+        }
+    }
+
+    Map<String, IntSet> getCUIsToAdd() {
+        return Collections.unmodifiableMap(cuisToAdd);
+    }
+
+    Map<String, IntSet> getTUIsToAdd() {
+        return Collections.unmodifiableMap(tuisToAdd);
+    }
+
+    /**
+     * @return The CUIs of the classes whose TUIs have to be looked up in UMLS
+     */
+    Map<String, IntSet> getPendingTUILookups() {
+        return Collections.unmodifiableMap(pendingTUILookups);
+    }
+
+    /**
+     * Add the TUIs resolved for a pending lookup, after the merge
+     */
+    synchronized void resolveTUIs(final String classURI, final IntSet tuis) {
+        tuisToAdd.put(classURI, tuis);
+    }
+
+    Map<String, String> getCodesToAdd() {
+        return Collections.unmodifiableMap(codesToAdd);
+    }
+
+    Map<String, IntSet> getCUIsToPurgeFromAltLabel() {
+        return Collections.unmodifiableMap(cuisToPurgeFromAltLabel);
+    }
+
+    Collection<Mapping> getMappingsToAdd() {
+        return Collections.unmodifiableCollection(mappingsToAdd);
+    }
+
+    Collection<String> getCUIAddedNotesToAdd() {
+        return Collections.unmodifiableCollection(cuiAddedNotesToAdd);
+    }
+
+    /**
+     * The changes for a single class, only ever written by the worker processing the class
+     */
+    private static final class ClassChanges {
+        private IntSet cuis;
+        private IntSet tuis;
+        private IntSet cuisForTUILookup;
+        private String code;
+        private IntSet cuisToPurgeFromAltLabel;
+        private Collection<Mapping> mappings;
+        private boolean cuiAddedNote;
+    }
+}
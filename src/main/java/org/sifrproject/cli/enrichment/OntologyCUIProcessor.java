@@ -3,11 +3,13 @@ package org.sifrproject.cli.enrichment;
 import com.hp.hpl.jena.ontology.OntClass;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import org.sifrproject.cli.api.AbstractOntologyProcessor;
+import org.sifrproject.cli.api.ClassProcessingScheduler;
 import org.sifrproject.cli.api.OntologyProcessor;
 import org.sifrproject.configuration.CUIProcessorCommandlineHandler;
 import org.sifrproject.configuration.CommandlineHandler;
 import org.sifrproject.ontology.code.CodeFinder;
-import org.sifrproject.ontology.code.CompositeCodeFinder;
+import org.sifrproject.ontology.code.CodeIndex;
+import org.sifrproject.ontology.code.CodeRules;
 import org.sifrproject.ontology.code.SKOSNotationCodeFinder;
 import org.sifrproject.ontology.cuis.CUIOntologyDelegate;
 import org.sifrproject.ontology.cuis.CUIOntologyDelegateImpl;
@@ -17,12 +19,16 @@ import org.sifrproject.ontology.mapping.OntologyMappingDelegate;
 import org.sifrproject.ontology.matching.CUITerm;
 import org.sifrproject.ontology.matching.PooledTermSimilarityRanker;
 import org.sifrproject.ontology.matching.TverskiTermSimilarityRanker;
-import org.sifrproject.ontology.umls.SQLUMLSDelegate;
+import org.sifrproject.ontology.umls.UMLSDelegateFactory;
 import org.sifrproject.ontology.umls.UMLSDelegate;
+import org.sifrproject.ontology.umls.UMLSIdentifiers;
 import org.sifrproject.ontology.umls.UMLSLanguageCode;
 import org.sifrproject.stats.CUIOntologyStats;
 import org.sifrproject.stats.StatsHandler;
-import redis.clients.jedis.JedisPool;
+import org.sifrproject.utils.LoadMode;
+import org.sifrproject.utils.cache.TwoTierCache;
+import org.sifrproject.utils.collections.IntObjectMap;
+import org.sifrproject.utils.collections.IntSet;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -43,18 +49,11 @@ import static org.sifrproject.configuration.ConfigurationConstants.*;
 public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
 
     private static final String CUI_ADDED_AUTOMATICALLY_NOTE = "Le LIRMM a enrichi ce concept en CUI et TUI par un processus automatique";
+    private static final int DEFAULT_MATCH_CANDIDATES = 200;
 
     private final UMLSDelegate umlsDelegate;
 
-    private final Map<String, Collection<String>> cuisToAdd;
-    private final Map<String, Collection<String>> tuisToAdd;
-    private final Map<String, String> codesToAdd;
-
-    private final Map<String, Collection<String>> cuisToPurgeFromAltLabel;
-
-    private final Collection<Mapping> mappingsToAdd;
-
-    private final List<String> cuiAddedNotesToAdd;
+    private final EnrichmentChangeset changeset;
 
     private final PooledTermSimilarityRanker termSimilarityRanker;
 
@@ -62,24 +61,32 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
 
     private boolean disambiguate;
     private boolean match;
+    private final int matchCandidates;
     private boolean addCodeToPrefLabel;
+    private final String outputPatchSuffix;
 
     private final AtomicInteger progressCount;
     private int totalClasses;
 
     private final CodeFinder codeFinder;
 
+    /**
+     * The UMLS CUIs of the codes of the classes without CUIs, resolved in batch before processing the classes
+     */
+    private Map<String, IntSet> umlsCUIsForCodes = Collections.emptyMap();
+
+    /**
+     * The mappings of the source classes, read in batch before processing the classes
+     */
+    private Map<String, List<Mapping>> sourceClassMappings = Collections.emptyMap();
+
 
     @SuppressWarnings({"IOResourceOpenedButNotSafelyClosed", "resource", "all"})
     private OntologyCUIProcessor(final Properties properties, final UMLSDelegate umlsDelegate, final CUIOntologyDelegate sourceDelegate, final CUIOntologyDelegate targetDelegate, final OntologyMappingDelegate mappingDelegate, final StatsHandler ontologyStats, final PooledTermSimilarityRanker termSimilarityRanker) {
-        super(ontologyStats, sourceDelegate, targetDelegate, mappingDelegate);
+        super(ontologyStats, sourceDelegate, targetDelegate, mappingDelegate, ClassProcessingScheduler.fromProperties(properties));
         this.umlsDelegate = umlsDelegate;
-        cuisToAdd = new HashMap<>();
-        tuisToAdd = new HashMap<>();
-        cuisToPurgeFromAltLabel = new HashMap<>();
-        mappingsToAdd = new ArrayList<>();
-        cuiAddedNotesToAdd = new ArrayList<>(10000);
-        codesToAdd = new HashMap<>();
+        //Source classes are processed concurrently, the results are accumulated per class in the changeset
+        changeset = new EnrichmentChangeset();
 
 
         progressCount = new AtomicInteger();
@@ -88,7 +95,7 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
 
         final String ontologyName = sourceDelegate.getOntologyName();
 
-        codeFinder = new CompositeCodeFinder(sourceDelegate);
+        codeFinder = CodeIndex.build(sourceDelegate, CodeRules.fromProperties(properties));
 
 
         try {
@@ -103,10 +110,12 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
         if (properties.containsKey(CONFIG_MATCH)) {
             match = true;
         }
+        matchCandidates = Integer.valueOf(properties.getProperty(CONFIG_MATCH_CANDIDATES, String.valueOf(DEFAULT_MATCH_CANDIDATES)));
 
         if (properties.containsKey(CONFIG_ADD_CODE_TO_PREFLABEL)) {
             addCodeToPrefLabel = true;
         }
+        outputPatchSuffix = properties.getProperty(CONFIG_OUTPUT_PATCH_SUFFIX);
     }
 
 
@@ -115,17 +124,17 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
      * Generates the corresponding statistics
      *
      * @param thisClass The current class to process
-     * @return A collection of string containing the CUIs found
+     * @return The CUIs found
      */
     @SuppressWarnings({"OverlyComplexMethod", "OverlyLongMethod"})
-    private Collection<String> processCUIs(final RDFNode thisClass) {
+    private IntSet processCUIs(final RDFNode thisClass) {
 
-        final Collection<String> cuis = new TreeSet<>();
+        final IntSet cuis = new IntSet();
         sourceDelegate.getCUIs(thisClass.toString(), cuis);
 
-        final List<Mapping> mappings = mappingDelegate.sourceMappings(thisClass.toString());
+        final List<Mapping> mappings = getSourceMappings(thisClass.toString());
         //Adding to mapping update list, the mappings will be added to the source classes in the update step later
-        mappingsToAdd.addAll(mappings);
+        changeset.addMappings(thisClass.toString(), mappings);
 
         //We retrieve the code from the ontology following Annane et al. 2016
         final String code = codeFinder.getCode(thisClass.toString());
@@ -133,7 +142,7 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
             incrementStatistic(CUIOntologyStats.UMLS_CODES_FOUND);
             //If there is a code found, we add it to the list so that it may be added as
             //skos:notation in the update step (postProcess)
-            codesToAdd.put(thisClass.toString(), code);
+            changeset.addCode(thisClass.toString(), code);
         }
 
         //If we can't find CUIs in the source ontology with the umls:cui relation, we
@@ -155,18 +164,16 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
                 disambiguate(cuis, thisClass);
             }
             logger.debug("\tAdding {} CUIs to model...", cuis.size());
-            synchronized (cuisToAdd) {
-                if (!cuis.isEmpty()) {
-                    cuiAddedNotesToAdd.add(thisClass.toString());
-                }
-                cuisToAdd.put(thisClass.toString(), cuis);
+            if (!cuis.isEmpty()) {
+                changeset.addCUIAddedNote(thisClass.toString());
             }
+            changeset.addCUIs(thisClass.toString(), cuis);
         } else {
             logger.debug("\t{} CUIs found!", cuis.size());
             if ((cuis.size() > 1) && disambiguate) {
                 disambiguate(cuis, thisClass);
-                cuiAddedNotesToAdd.add(thisClass.toString());
-                cuisToAdd.put(thisClass.toString(), cuis);
+                changeset.addCUIAddedNote(thisClass.toString());
+                changeset.addCUIs(thisClass.toString(), cuis);
             }
         }
 
@@ -188,11 +195,11 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
      * @return A collection of retrieved CUIs
      */
     @SuppressWarnings({"FeatureEnvy", "LawOfDemeter"})
-    private Collection<String> findCUIs(final String classURI, final String code, final Collection<Mapping> mappings) {
+    private IntSet findCUIs(final String classURI, final String code, final Collection<Mapping> mappings) {
 
         //Looking for CUIs through:
         logger.debug("\t\tIn altLabel...");
-        final Set<String> cuis = new TreeSet<>(sourceDelegate.findCUIsInAltLabel(classURI));
+        final IntSet cuis = new IntSet(sourceDelegate.findCUIsInAltLabel(classURI));
         if (cuis.isEmpty()) {
 
             logger.debug("\t\tIn mappings...");
@@ -204,8 +211,12 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
 
             if (cuis.isEmpty()) { // We couldn't find CUIs anywhere, so we write the class down for manual inspection
 
-                logger.debug("\t\tIn UMLS through code...");
-                cuis.addAll(umlsDelegate.getUMLSCUIs(code));
+                //The classes without code cannot be found in UMLS through their code
+                if (code != null) {
+                    logger.debug("\t\tIn UMLS through code...");
+                    final IntSet codeCUIs = umlsCUIsForCodes.get(code);
+                    cuis.addAll((codeCUIs == null) ? umlsDelegate.getUMLSCUIs(code) : codeCUIs);
+                }
 
 
                 if(cuis.isEmpty()) {
@@ -223,7 +234,7 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
             }
         } else {
             logger.debug("\t\t Found {} CUIs in altLabel.", cuis.size());
-            cuisToPurgeFromAltLabel.put(classURI, cuis);
+            changeset.purgeCUIsFromAltLabel(classURI, cuis);
             incrementStatistic(CUIOntologyStats.CLASSES_WITH_CUI_IN_ALT_LABEL_STATISTIC);
         }
 
@@ -232,10 +243,9 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
 
 
     @SuppressWarnings("FeatureEnvy")
-    private void compareCUIsToUMLS(final String code, final Collection<String> cuis) {
+    private void compareCUIsToUMLS(final String code, final IntSet cuis) {
         if (code != null) {
-            final Collection<String> umlsCUIs = new TreeSet<>();
-            umlsCUIs.addAll(umlsDelegate.getUMLSCUIs(code, UMLSLanguageCode.FRENCH));
+            final IntSet umlsCUIs = umlsDelegate.getUMLSCUIs(code, UMLSLanguageCode.FRENCH);
             if (umlsCUIs.size() > cuis.size()) {
                 incrementStatistic(CUIOntologyStats.CLASSES_WITH_LESS_CUIS_THAN_UMLS);
             } else if (umlsCUIs.size() < cuis.size()) {
@@ -246,19 +256,24 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
     }
 
     @SuppressWarnings({"FeatureEnvy", "LawOfDemeter"})
-    private void disambiguate(final Collection<String> cuis, final RDFNode thisClass) {
+    private void disambiguate(final IntSet cuis, final RDFNode thisClass) {
 
         final String conceptDescription = sourceDelegate.getConceptLabel(thisClass.toString());
-        final List<CUITerm> conceptNameCUIMap = (cuis.isEmpty()) ?
-                umlsDelegate.getCUIConceptNameMap(UMLSLanguageCode.FRENCH) :
-                umlsDelegate.getCUIConceptNameMap(UMLSLanguageCode.FRENCH, cuis);
-
-        if (!conceptNameCUIMap.isEmpty()) {
-            termSimilarityRanker.rankBySimilarity(conceptNameCUIMap, conceptDescription);
-
-            final CUITerm cuiTerm = conceptNameCUIMap.get(0);
+        //Without CUI, the label is only ranked against the concepts sharing the most tokens with it
+        final IntSet candidates = (cuis.isEmpty()) ?
+                umlsDelegate.getCandidateCUIs(conceptDescription, UMLSLanguageCode.FRENCH, matchCandidates) :
+                cuis;
+        final List<CUITerm> conceptNameCUIMap = (candidates.isEmpty()) ?
+                Collections.emptyList() :
+                umlsDelegate.getCUIConceptNameMap(UMLSLanguageCode.FRENCH, candidates);
+        final List<CUITerm> mostSimilarTerms = (conceptNameCUIMap.isEmpty()) ?
+                Collections.emptyList() :
+                termSimilarityRanker.getMostSimilar(conceptNameCUIMap, conceptDescription, 1);
+
+        if (!mostSimilarTerms.isEmpty()) {
+            final CUITerm cuiTerm = mostSimilarTerms.get(0);
             cuis.clear();
-            cuis.add(cuiTerm.getCUI());
+            cuis.add(UMLSIdentifiers.cuiToInt(cuiTerm.getCUI()));
         }
     }
 
@@ -270,12 +285,12 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
      * @param thisClass The class for which we are looking to add TUIs to.
      * @param cuis      The CUIs found for the class
      */
-    private void processTUIs(final RDFNode thisClass, final Collection<String> cuis) {
-        Collection<String> tuis = new ArrayList<>();
+    private void processTUIs(final RDFNode thisClass, final IntSet cuis) {
+        final IntSet tuis = new IntSet();
         sourceDelegate.getTUIs(thisClass.toString(), tuis);
         if (tuis.isEmpty()) {
             if (cuis.isEmpty()) {
-                final List<Mapping> mappings = mappingDelegate.sourceMappings(thisClass.toString());
+                final List<Mapping> mappings = getSourceMappings(thisClass.toString());
                 final Stream<Mapping> stream = mappings.stream();
                 final Stream<String> stringStream = stream.map(Mapping::getSourceClass);
                 final List<String> mappingClasses = stringStream.collect(Collectors.toList());
@@ -283,33 +298,97 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
                 if (tuis.isEmpty()) {
                     incrementStatistic(CUIOntologyStats.CLASSES_REMAINING_WITHOUT_TUI_STATISTIC);
                 }
+                logger.debug("\tAdded {} TUIs", tuis.size());
+                changeset.addTUIs(thisClass.toString(), tuis);
             } else {
-                tuis = umlsDelegate.getTUIsForCUIs(cuis);
+                //The TUIs of the CUIs are looked up in UMLS for all the classes at once in postProcess
+                changeset.addTUIsFromCUIs(thisClass.toString(), cuis);
                 incrementStatistic(CUIOntologyStats.CLASSES_WITHOUT_TUI_STATISTIC);
-            }
-            logger.debug("\tAdded {} TUIs", tuis.size());
-            synchronized (tuisToAdd) {
-                tuisToAdd.put(thisClass.toString(), tuis);
+                logger.debug("\tDeferred TUI lookup for {} CUIs", cuis.size());
             }
         } else {
             logger.debug("\t{} TUIs found!", cuis.size());
         }
     }
 
+    /**
+     * Resolve the CUIs of the codes of all the classes without CUI in the source ontology with batch UMLS queries,
+     * instead of one query per class
+     */
+    private void resolveUMLSCodes() {
+        logger.info("Resolving UMLS codes...");
+        final Collection<String> codes = new HashSet<>();
+        final IntSet cuis = new IntSet();
+        for (final OntClass thisClass : sourceDelegate.getClasses()) {
+            cuis.clear();
+            sourceDelegate.getCUIs(thisClass.toString(), cuis);
+            if (cuis.isEmpty()) {
+                final String code = codeFinder.getCode(thisClass.toString());
+                if (code != null) {
+                    codes.add(code);
+                }
+            }
+        }
+        umlsCUIsForCodes = umlsDelegate.getUMLSCUIsForCodes(codes);
+        logger.info("\t{} codes resolved", umlsCUIsForCodes.size());
+    }
+
+    /**
+     * Read the mappings of all the source classes with pipelined cache reads, instead of one round trip per class
+     */
+    private void resolveSourceMappings() {
+        logger.info("Reading source mappings...");
+        final Collection<String> classURIs = new ArrayList<>();
+        for (final OntClass thisClass : sourceDelegate.getClasses()) {
+            classURIs.add(thisClass.toString());
+        }
+        sourceClassMappings = mappingDelegate.sourceMappings(classURIs);
+    }
+
+    private List<Mapping> getSourceMappings(final String classURI) {
+        final List<Mapping> mappings = sourceClassMappings.get(classURI);
+        return (mappings == null) ? mappingDelegate.sourceMappings(classURI) : mappings;
+    }
+
+    /**
+     * Resolve the deferred TUI lookups of all the classes with batch UMLS queries
+     */
+    private void resolvePendingTUIs() {
+        final Map<String, IntSet> pendingTUILookups = changeset.getPendingTUILookups();
+        final IntSet cuis = new IntSet();
+        for (final IntSet classCUIs : pendingTUILookups.values()) {
+            cuis.addAll(classCUIs);
+        }
+        logger.info("Resolving TUIs of {} CUIs...", cuis.size());
+        final IntObjectMap<IntSet> tuisPerCUI = umlsDelegate.getTUIsPerCUI(cuis);
+        for (final Map.Entry<String, IntSet> pendingEntry : pendingTUILookups.entrySet()) {
+            final IntSet classCUIs = pendingEntry.getValue();
+            final IntSet tuis = new IntSet();
+            for (int i = 0; i < classCUIs.size(); i++) {
+                final IntSet cuiTUIs = tuisPerCUI.get(classCUIs.get(i));
+                if (cuiTUIs != null) {
+                    tuis.addAll(cuiTUIs);
+                }
+            }
+            changeset.resolveTUIs(pendingEntry.getKey(), tuis);
+        }
+    }
+
     private int size(final Collection collection) {
         return collection.size();
     }
 
     @SuppressWarnings("FeatureEnvy")
     private void updateCUIs() {
-        for (final Map.Entry<String, Collection<String>> cuiEntry : cuisToAdd.entrySet()) {
-            for (final String cui : cuiEntry.getValue()) {
-                sourceDelegate.addCUIToModel(cuiEntry.getKey(), cui);
+        for (final Map.Entry<String, IntSet> cuiEntry : changeset.getCUIsToAdd().entrySet()) {
+            final IntSet cuis = cuiEntry.getValue();
+            for (int i = 0; i < cuis.size(); i++) {
+                sourceDelegate.addCUIToModel(cuiEntry.getKey(), cuis.get(i));
             }
             printUpdateProgress();
         }
 
-        for (final String classURI : cuiAddedNotesToAdd) {
+        for (final String classURI : changeset.getCUIAddedNotesToAdd()) {
             sourceDelegate.addSkosProperty(classURI, CUI_ADDED_AUTOMATICALLY_NOTE, "changeNote", "fr");
             printUpdateProgress();
         }
@@ -317,7 +396,7 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
 
     @SuppressWarnings("FeatureEnvy")
     private void updateMappings() {
-        for (final Mapping mapping : mappingsToAdd) {
+        for (final Mapping mapping : changeset.getMappingsToAdd()) {
             sourceDelegate.addStatement(mapping.getSourceClass(), mapping.getProperty(), mapping.getTargetClass());
             printUpdateProgress();
         }
@@ -325,7 +404,7 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
 
     private void updateCodeNotes() {
         final CodeFinder skosCodeFinder = new SKOSNotationCodeFinder(sourceDelegate);
-        for (final Map.Entry<String, String> stringStringEntry : codesToAdd.entrySet()) {
+        for (final Map.Entry<String, String> stringStringEntry : changeset.getCodesToAdd().entrySet()) {
             final String classURI = stringStringEntry.getKey();
             final String code = stringStringEntry.getValue();
             sourceDelegate.purgeCodeFromAltLabel(classURI, code, "fr");
@@ -340,19 +419,20 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
     }
 
     private void updateTUIs() {
-        for (final Map.Entry<String, Collection<String>> tuiEntry : tuisToAdd.entrySet()) {
-            for (final String tui : tuiEntry.getValue()) {
-                sourceDelegate.addTUIToModel(tuiEntry.getKey(), tui);
+        for (final Map.Entry<String, IntSet> tuiEntry : changeset.getTUIsToAdd().entrySet()) {
+            final IntSet tuis = tuiEntry.getValue();
+            for (int i = 0; i < tuis.size(); i++) {
+                sourceDelegate.addTUIToModel(tuiEntry.getKey(), tuis.get(i));
             }
             printUpdateProgress();
         }
     }
 
-    private void cleanCUIsAltLabelsAndSynonyms(final Iterable<String> cuisToPurge) {
-        for (final String classURI : cuisToPurge) {
+    private void cleanCUIsAltLabelsAndSynonyms(final Map<String, IntSet> cuisToPurge) {
+        for (final Map.Entry<String, IntSet> purgeEntry : cuisToPurge.entrySet()) {
             sourceDelegate.purgeCUIsFromAltLabel(
-                    classURI,
-                    cuisToPurgeFromAltLabel.get(classURI),
+                    purgeEntry.getKey(),
+                    purgeEntry.getValue(),
                     UMLSLanguageCode.FRENCH.getShortCode()
             );
             printUpdateProgress();
@@ -376,7 +456,7 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
     protected void processSourceClass(final OntClass thisClass) {
         incrementStatistic(CUIOntologyStats.TOTAL_CLASS_COUNT_STATISTIC);
         logger.debug(String.format("Processing: %s", thisClass));
-        final Collection<String> cuis = processCUIs(thisClass);
+        final IntSet cuis = processCUIs(thisClass);
         processTUIs(thisClass, cuis);
         final double progress = getPercentProgress();
         //noinspection UseOfSystemOutOrSystemErr,HardcodedLineSeparator
@@ -394,13 +474,21 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
     @Override
     protected void postProcess() {
         progressCount.set(0);
+        //All the workers are done, the per-class changes are consolidated once before updating the model
+        changeset.merge();
+        resolvePendingTUIs();
         final List<OntClass> sourceClasses = sourceDelegate.getClasses();
-        totalClasses = cuisToAdd.size() + cuiAddedNotesToAdd.size() + tuisToAdd.size() +
-                (2 * size(sourceClasses)) + mappingsToAdd.size() + codesToAdd.size();
+        totalClasses = changeset.getCUIsToAdd().size() + changeset.getCUIAddedNotesToAdd().size() +
+                changeset.getTUIsToAdd().size() + (2 * size(sourceClasses)) +
+                changeset.getMappingsToAdd().size() + changeset.getCodesToAdd().size();
         logger.info("Updating ontology model...");
+        if (outputPatchSuffix != null) {
+            //Only the additions and deletions below are written, instead of the whole model
+            sourceDelegate.recordChanges(outputPatchSuffix.trim());
+        }
 
         updateCUIs();
-        cleanCUIsAltLabelsAndSynonyms(cuisToPurgeFromAltLabel.keySet());
+        cleanCUIsAltLabelsAndSynonyms(changeset.getCUIsToPurgeFromAltLabel());
         updateTUIs();
         updateMappings();
 
@@ -409,6 +497,8 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
 
         updateCodeNotes();
 
+        //The updates above were buffered while reading the unchanged model, they are applied at once
+        sourceDelegate.applyChanges();
         logger.info("Done!");
 
         logger.info("Writing processed ontology file...");
@@ -423,6 +513,15 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
 
     @Override
     public void process() throws IOException {
+        /*
+         * Scan the source and target models once for the relations used to find CUIs, TUIs and codes, so that
+         * processing the classes does not require one cache and model lookup per relation and per class
+         */
+        sourceDelegate.prefetchClassFacts();
+        targetDelegate.prefetchClassFacts();
+        resolveUMLSCodes();
+        resolveSourceMappings();
+
         /*The base class iterates over each source ontology class and calls processSourceClass, overridden above
         * Please look at processSourceClass if you wish to modify this process*/
         processSourceOntology();
@@ -452,19 +551,12 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
         final CommandlineHandler commandlineHandler = new CUIProcessorCommandlineHandler();
         commandlineHandler.processCommandline(args, properties);
 
-        final JedisPool jedisPool = new JedisPool(
-                properties.getProperty(CONFIG_REDIS_HOST),
-                Integer.valueOf(properties.getProperty(CONFIG_REDIS_PORT))
-        );
+        final TwoTierCache cache = TwoTierCache.fromProperties(properties);
 
         /*
          * Creating the UMLS delegate to access UMLS over SQL
          */
-        final String jdbc = properties.getProperty(CONFIG_UMLS_JDBC);
-        final String dbUser = properties.getProperty(CONFIG_UMLS_USER);
-        final String dbpass = properties.getProperty(CONFIG_UMLS_PASSWORD);
-        final String dbumls = properties.getProperty(CONFIG_UMLS_DB);
-        final UMLSDelegate umlsDelegate = new SQLUMLSDelegate(jdbc, dbUser, dbpass, dbumls, jedisPool);
+        final UMLSDelegate umlsDelegate = UMLSDelegateFactory.create(properties, cache);
 
 
             /*
@@ -475,9 +567,10 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
         final String mappingsEndpoint = properties.getProperty(CONFIG_MAPPINGS_ENDPOINT);
 
         final String outputFileSuffix = properties.getProperty(CONFIG_OUTPUT_FILE_SUFFIX);
+        final LoadMode loadMode = LoadMode.fromProperties(properties);
 
-        final CUIOntologyDelegate sourceDelegate = new CUIOntologyDelegateImpl(sourceEndpoint, outputFileSuffix, jedisPool);
-        final CUIOntologyDelegate targetDelegate = new CUIOntologyDelegateImpl(targetEndpoint, outputFileSuffix, jedisPool);
+        final CUIOntologyDelegate sourceDelegate = new CUIOntologyDelegateImpl(sourceEndpoint, outputFileSuffix, loadMode);
+        final CUIOntologyDelegate targetDelegate = new CUIOntologyDelegateImpl(targetEndpoint, outputFileSuffix, loadMode);
 
         final String sourceName = sourceDelegate.getOntologyName();
         final String targetName = targetDelegate.getOntologyName();
@@ -486,13 +579,14 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
                 mappingsEndpoint,
                 sourceName,
                 targetName,
-                jedisPool
+                cache,
+                loadMode
         );
 
 
         final StatsHandler ontologyStats = new CUIOntologyStats(sourceName + "_" + targetName);
 
-        final PooledTermSimilarityRanker termSimilarityRanker = new TverskiTermSimilarityRanker(jedisPool);
+        final PooledTermSimilarityRanker termSimilarityRanker = TverskiTermSimilarityRanker.fromProperties(properties, cache);
 
         final OntologyProcessor ontologyCUIProcessor = new OntologyCUIProcessor(
                 properties,
@@ -505,6 +599,8 @@ public final class OntologyCUIProcessor extends AbstractOntologyProcessor {
         );
 
         ontologyCUIProcessor.process();
+        cache.logStatistics();
+        cache.close();
     }
 
 
@@ -14,7 +14,6 @@ import org.sifrproject.stats.SkosGeneratorOntologyStats;
 import org.sifrproject.stats.StatsHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.JedisPool;
 
 import java.io.*;
 import java.nio.file.Path;
@@ -25,8 +24,6 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static org.sifrproject.configuration.ConfigurationConstants.CONFIG_REDIS_HOST;
-import static org.sifrproject.configuration.ConfigurationConstants.CONFIG_REDIS_PORT;
 import static org.sifrproject.configuration.SKOSGeneratorConfigurationConstants.*;
 
 @SuppressWarnings("ClassWithTooManyFields")
@@ -434,11 +431,6 @@ public final class EHealth2017DictionaryToSkos implements SKOSOntologyGenerator
         final CommandlineHandler commandlineHandler = new SKOSGeneratorCommandlineHandler();
         commandlineHandler.processCommandline(args, properties);
 
-        final JedisPool jedisPool = new JedisPool(
-                properties.getProperty(CONFIG_REDIS_HOST),
-                Integer.valueOf(properties.getProperty(CONFIG_REDIS_PORT))
-        );
-
         final String dictionaryPath = properties.getProperty(CONFIG_DICTIONARY_PATH);
         final String corpusPath = properties.getProperty(CONFIG_CORPUS_PATH);
         final Path path = Paths.get(dictionaryPath);
@@ -481,7 +473,7 @@ public final class EHealth2017DictionaryToSkos implements SKOSOntologyGenerator
             optionNameBuilder.append("_mfc");
         }
 
-        final SKOSOntologyDelegate ontologyDelegate = new SKOSOntologyDelegateImpl(FILENAMEWITHEXT.split(fileName.toString())[0] + optionNameBuilder + ".owl", jedisPool);
+        final SKOSOntologyDelegate ontologyDelegate = new SKOSOntologyDelegateImpl(FILENAMEWITHEXT.split(fileName.toString())[0] + optionNameBuilder + ".owl");
 
 
         final SKOSOntologyGenerator SKOSOntologyGenerator =
@@ -490,6 +482,5 @@ public final class EHealth2017DictionaryToSkos implements SKOSOntologyGenerator
                         includeCorpusStd, mostFrequentCode, adaptedCorpus);
         SKOSOntologyGenerator.generate(ontologyDelegate);
         ontologyDelegate.writeModel();
-
     }
 }
@@ -12,6 +12,8 @@ public final class CUIProcessorConfigurationConstants {
 
     public static final String CONFIG_DISAMBIGUATE = "config.disambiguate";
     public static final String CONFIG_MATCH = "config.match";
+    public static final String CONFIG_MATCH_CANDIDATES = "config.match_candidates";
 
     public static final String CONFIG_ADD_CODE_TO_PREFLABEL = "config.add_code_to_preflabel";
+    public static final String CONFIG_OUTPUT_PATCH_SUFFIX = "config.output_patch_suffix";
 }
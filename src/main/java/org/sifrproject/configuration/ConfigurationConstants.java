@@ -10,7 +10,24 @@ public final class ConfigurationConstants {
     public static final String CONFIG_UMLS_USER = "config.umls_user";
     public static final String CONFIG_UMLS_PASSWORD = "config.umls_password";
     public static final String CONFIG_UMLS_DB = "config.umls_db";
+    public static final String CONFIG_UMLS_POOL_SIZE = "config.umls_pool_size";
+    public static final String CONFIG_UMLS_POOL_MAX_WAIT_MILLIS = "config.umls_pool_max_wait_millis";
+    public static final String CONFIG_UMLS_POOL_PREPARED_STATEMENTS = "config.umls_pool_prepared_statements";
+    public static final String CONFIG_UMLS_POOL_MAX_OPEN_PREPARED_STATEMENTS = "config.umls_pool_max_open_prepared_statements";
+    public static final String CONFIG_UMLS_BACKEND = "config.umls_backend";
+    public static final String CONFIG_UMLS_EMBEDDED_PATH = "config.umls_embedded_path";
     public static final String CONFIG_REDIS_HOST = "config.redis_host";
     public static final String CONFIG_REDIS_PORT = "config.redis_port";
+    public static final String CONFIG_NEAR_CACHE_SIZE = "config.near_cache_size";
+    public static final String CONFIG_CACHE_BACKEND = "config.cache_backend";
+    public static final String CONFIG_CACHE_EMBEDDED_PATH = "config.cache_embedded_path";
+    public static final String CONFIG_SCORE_CACHE_TTL = "config.score_cache_ttl";
+    public static final String CONFIG_SCORE_CACHE_MAX_ENTRIES = "config.score_cache_max_entries";
     public static final String CONFIG_OUTPUT_FILE_SUFFIX = "config.output_file_suffix";
+    public static final String CONFIG_PARALLELISM = "config.parallelism";
+    public static final String CONFIG_CHUNK_SIZE = "config.chunk_size";
+    public static final String CONFIG_CODE_RELATIONS = "config.code_relations";
+    public static final String CONFIG_CODE_URI_PATTERN = "config.code_uri_pattern";
+    public static final String CONFIG_CODE_NORMALIZATION = "config.code_normalization";
+    public static final String CONFIG_LOAD_MODE = "config.load_mode";
 }
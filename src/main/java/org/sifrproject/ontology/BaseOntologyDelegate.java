@@ -12,23 +12,22 @@ import com.hp.hpl.jena.rdf.model.*;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 import org.sifrproject.cli.OWLOntologyCleaner;
 import org.sifrproject.ontology.prefix.OntologyPrefix;
-import org.sifrproject.utils.CacheKeyPrefixes;
-import org.sifrproject.utils.EmptyResultsCache;
+import org.sifrproject.utils.LoadMode;
+import org.sifrproject.utils.ModelWriter;
 import org.sifrproject.utils.OntologyLoader;
+import org.sifrproject.utils.RDFPatchWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
 
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -58,17 +57,35 @@ public class BaseOntologyDelegate implements OntologyDelegate {
     protected List<OntClass> classes;
     private String ontologyName = "";
     private String outputFileSuffix;
-    protected final JedisPool jedisPool;
     private String outputFormat = TURTLE;
 
-    private final Map<String, OntResource> resourceCache = new HashMap<>();
-    private final Map<String, OntProperty> propertyCache = new HashMap<>();
+    /**
+     * Snapshot of the model read by the lookups without locking, replaced by a new index when relations are prefetched
+     * and discarded when the buffered changes are applied
+     */
+    protected volatile TripleIndex factIndex = TripleIndex.EMPTY;
+    private RDFPatchWriter patchWriter;
+
+    /**
+     * The changes of the read phase, in their order
+     */
+    private final Queue<Change> pendingChanges = new ConcurrentLinkedQueue<>();
 
-    protected BaseOntologyDelegate(final String modelURI, final String outputFileSuffix, final JedisPool jedisPool) {
-        model = OntologyLoader.loadModel(modelURI);
+    private final Map<String, OntResource> resourceCache = new ConcurrentHashMap<>();
+    private final Map<String, OntProperty> propertyCache = new ConcurrentHashMap<>();
+
+    protected BaseOntologyDelegate(final String modelURI, final String outputFileSuffix) {
+        this(modelURI, outputFileSuffix, LoadMode.RDFS_INFERENCE);
+    }
+
+    /**
+     * @param loadMode How the model is built, without inference the classes are only those asserted as owl:Class (or
+     *                 skos:Concept instances)
+     */
+    protected BaseOntologyDelegate(final String modelURI, final String outputFileSuffix, final LoadMode loadMode) {
+        model = OntologyLoader.loadModel(modelURI, loadMode);
         loadPrefixes();
 
-        this.jedisPool = jedisPool;
         this.outputFileSuffix = outputFileSuffix;
 
         final Matcher matcher = URL_PATTERN.matcher(modelURI);
@@ -101,17 +118,18 @@ public class BaseOntologyDelegate implements OntologyDelegate {
                     break;
             }
             //this.outputFileSuffix += "." + comps[1];
-            //outputFormat = RDF_XML;
             outputFormat = RDF_XML;
-            this.outputFileSuffix += ".owl";
+            //A suffix ending with .nt or .ttl (optionally .gz/.bz2) selects a streamed output
+            if (!ModelWriter.isStreamed(this.outputFileSuffix)) {
+                this.outputFileSuffix += ".owl";
+            }
         }
     }
 
-    BaseOntologyDelegate(final String outputFileName, final JedisPool jedisPool) {
+    BaseOntologyDelegate(final String outputFileName) {
         model = ModelFactory.createOntologyModel();
         loadPrefixes();
 
-        this.jedisPool = jedisPool;
         outputFileSuffix = "";
 
         if (outputFileName.contains(".")) {
@@ -146,27 +164,7 @@ public class BaseOntologyDelegate implements OntologyDelegate {
 
     @Override
     public String getConceptLabel(final String classURI) {
-        final String prefLabel;
-        try (Jedis jedis = jedisPool.getResource()) {
-            final String key = CacheKeyPrefixes.PREFLABEL + classURI;
-            final String cachedPrefLabel = jedis.get(key);
-            if (cachedPrefLabel == null) {
-                synchronized (model) {
-                    final OntProperty ontProperty = getOrCreateProperty(SKOS_CORE_PREF_LABEL_PROPERTY);
-                    final StmtIterator stmtIterator = model.listStatements(getOrCreateResource(classURI), ontProperty, (RDFNode) null);
-                    final StringBuilder conceptDescription = new StringBuilder();
-                    while (stmtIterator.hasNext()) {
-                        final Statement statement = stmtIterator.next();
-                        conceptDescription.append(statement.getString());
-                    }
-                    prefLabel = conceptDescription.toString();
-                    jedis.set(key, prefLabel);
-                }
-            } else {
-                prefLabel = cachedPrefLabel;
-            }
-        }
-        return prefLabel;
+        return String.join("", readIndex(SKOS_CORE_PREF_LABEL_PROPERTY).getLexicalForms(classURI, SKOS_CORE_PREF_LABEL_PROPERTY));
     }
 
     @Override
@@ -196,22 +194,76 @@ public class BaseOntologyDelegate implements OntologyDelegate {
 
     @Override
     public void appendModel(final OntModel ontModel) {
-        model.add(ontModel);
+        final StmtIterator stmtIterator = ontModel.listStatements();
+        while (stmtIterator.hasNext()) {
+            bufferAddition(stmtIterator.nextStatement());
+        }
     }
 
+    /**
+     * Buffer the addition of a statement, applied to the model by {@link #applyChanges()}
+     */
+    protected void bufferAddition(final Statement statement) {
+        pendingChanges.add(new Change(statement, true));
+    }
+
+    /**
+     * Buffer the removal of a statement, applied to the model by {@link #applyChanges()}
+     */
+    protected void bufferDeletion(final Statement statement) {
+        pendingChanges.add(new Change(statement, false));
+    }
+
+    @Override
+    public synchronized void applyChanges() {
+        if (!pendingChanges.isEmpty()) {
+            logger.info("Applying {} changes to the model...", pendingChanges.size());
+            Change change = pendingChanges.poll();
+            while (change != null) {
+                final Statement statement = change.statement;
+                //Declares the property in the model, as when the statements were added directly
+                getOrCreateProperty(statement.getPredicate().getURI());
+                if (change.addition) {
+                    model.add(statement);
+                } else {
+                    model.remove(statement);
+                }
+                change = pendingChanges.poll();
+            }
+            //The next lookups index the relations again from the updated model
+            factIndex = TripleIndex.EMPTY;
+        }
+    }
+
+
+    @Override
+    public void recordChanges(final String patchFileSuffix) {
+        final String patchFileName = ontologyName + patchFileSuffix;
+        try {
+            patchWriter = new RDFPatchWriter(patchFileName);
+            model.getBaseModel().register(patchWriter);
+            logger.info("Recording the changes of the model in {}", patchFileName);
+        } catch (final IOException e) {
+            logger.error("Cannot create the patch file, the whole model will be written: {}", e.getLocalizedMessage());
+        }
+    }
 
     /**
      * Output the enriched model to a file in the running directory of the project with "_enriched" appended to the
-     * end.
+     * end. The format and compression follow the file name, see {@link ModelWriter}. The buffered changes are applied
+     * first, and if the changes are recorded, only the patch is written.
      */
     @Override
     public void writeModel() {
+        applyChanges();
+        if (patchWriter != null) {
+            writePatch();
+            return;
+        }
         final String outputModelFileName = ontologyName + outputFileSuffix;
         try {
-            final OutputStream outputModelStream = new FileOutputStream(outputModelFileName);
-            model.write(outputModelStream, outputFormat);
-            outputModelStream.close();
-
+            logger.info("Writing the model to {}...", outputModelFileName);
+            ModelWriter.write(model.getBaseModel(), outputModelFileName, outputFormat);
         } catch (final FileNotFoundException e) {
             logger.error("Could not create output stream: {}", e.getLocalizedMessage());
         } catch (final IOException e) {
@@ -219,6 +271,17 @@ public class BaseOntologyDelegate implements OntologyDelegate {
         }
     }
 
+    private void writePatch() {
+        model.getBaseModel().unregister(patchWriter);
+        try {
+            patchWriter.close();
+            logger.info("Patch written: {} additions, {} deletions", patchWriter.getAdditionCount(), patchWriter.getDeletionCount());
+        } catch (final IOException e) {
+            logger.error("IOException while writing the patch: {}", e.getLocalizedMessage());
+        }
+        patchWriter = null;
+    }
+
 
     @Override
     public void addSkosProperty(final String classURI, final String value, final String propertyName, final String languageCode) {
@@ -233,73 +296,113 @@ public class BaseOntologyDelegate implements OntologyDelegate {
 
     @Override
     public void addStatement(final String sourceURI, final String propertyURI, final String targetURI) {
-        final OntResource subject = getOrCreateResource(sourceURI);
-        final OntProperty property = getOrCreateProperty(propertyURI);
-        final OntResource object = getOrCreateResource(targetURI);
-        model.add(subject, property, object);
+        bufferAddition(ResourceFactory.createStatement(
+                ResourceFactory.createResource(sourceURI),
+                ResourceFactory.createProperty(propertyURI),
+                ResourceFactory.createResource(targetURI)));
     }
 
     @Override
     public void addLiteralStatement(final String sourceURI, final String propertyURI, final String literal) {
-        final OntResource subject = getOrCreateResource(sourceURI);
-        final OntProperty property = getOrCreateProperty(propertyURI);
-        model.add(subject, property, literal);
+        bufferAddition(ResourceFactory.createStatement(
+                ResourceFactory.createResource(sourceURI),
+                ResourceFactory.createProperty(propertyURI),
+                ResourceFactory.createPlainLiteral(literal)));
     }
 
     @Override
     public void addLiteralStatement(final String sourceURI, final String propertyURI, final String literal, final String languageCode) {
-        final OntResource subject = getOrCreateResource(sourceURI);
-        final OntProperty property = getOrCreateProperty(propertyURI);
-        model.add(subject, property, model.createLiteral(literal, languageCode));
+        bufferAddition(ResourceFactory.createStatement(
+                ResourceFactory.createResource(sourceURI),
+                ResourceFactory.createProperty(propertyURI),
+                ResourceFactory.createLangLiteral(literal, languageCode)));
     }
 
     @Override
-    public Collection<String> getObjectsThroughRelation(final String classURI, final String relationURI) {
-        Collection<String> collection;
-        try (Jedis jedis = jedisPool.getResource()) {
-            final String key = CacheKeyPrefixes.CLASS_RELATION + classURI + "_" + relationURI;
-            collection = jedis.lrange(key, 0, -1);
-            if (collection.isEmpty() && !EmptyResultsCache.isEmpty(key, jedis)) {
-                collection = new TreeSet<>();
+    public synchronized void prefetch(final Collection<String> relationURIs) {
+        final TripleIndex.Builder builder = new TripleIndex.Builder(factIndex);
+        boolean prefetched = false;
+        for (final String relationURI : relationURIs) {
+            if (!factIndex.isPrefetched(relationURI)) {
+                logger.info("Prefetching {}...", relationURI);
+                builder.addRelation(relationURI);
+                final Set<String> subjects = new HashSet<>();
                 final OntProperty ontProperty = getOrCreateProperty(relationURI);
-                final OntResource subject = getOrCreateResource(classURI);
-                final StmtIterator stmtIterator =
-                        model.listStatements(subject,
-                                ontProperty,
-                                (RDFNode) null);
+                final StmtIterator stmtIterator = model.listStatements(null, ontProperty, (RDFNode) null);
                 while (stmtIterator.hasNext()) {
                     final Statement statement = stmtIterator.nextStatement();
+                    final String subject = statement.getSubject().toString();
                     final RDFNode object = statement.getObject();
-                    collection.add(object.toString());
-                }
-                if (collection.isEmpty()) {
-                    EmptyResultsCache.markEmpty(key, jedis);
-                } else {
-                    jedis.lpush(key, collection.toArray(new String[collection.size()]));
+                    final String lexicalForm = object.isLiteral() ? object.asLiteral().getLexicalForm() : object.toString();
+                    builder.add(subject, relationURI, object.toString(), lexicalForm);
+                    subjects.add(subject);
                 }
+                logger.info("\t{} classes", subjects.size());
+                prefetched = true;
             }
         }
-        return collection;
+        if (prefetched) {
+            factIndex = builder.build();
+            logger.info("Fact index: {} subjects, {} distinct objects", factIndex.getSubjectCount(), factIndex.getTermCount());
+        }
+    }
+
+    @Override
+    public Map<String, Collection<String>> getRelationObjects(final String relationURI) {
+        prefetch(Collections.singletonList(relationURI));
+        return factIndex.getRelation(relationURI);
+    }
+
+    @Override
+    public Collection<String> getObjectsThroughRelation(final String classURI, final String relationURI) {
+        return readIndex(relationURI).getObjects(classURI, relationURI);
     }
 
     @Override
     public Collection<String> getObjectsThroughRelation(final Collection<String> classURIs, final String propertyURI) {
         final Collection<String> collection = new TreeSet<>();
+        final TripleIndex index = readIndex(propertyURI);
         for (final String classURI : classURIs) {
-            collection.addAll(getObjectsThroughRelation(classURI, propertyURI));
+            collection.addAll(index.getObjects(classURI, propertyURI));
         }
+        return collection;
+    }
+
+    @Override
+    public Collection<String> getLexicalFormsThroughRelation(final String classURI, final String relationURI) {
+        return readIndex(relationURI).getLexicalForms(classURI, relationURI);
+    }
 
+    @Override
+    public Collection<String> getLexicalFormsThroughRelation(final Collection<String> classURIs, final String relationURI) {
+        final Collection<String> collection = new TreeSet<>();
+        final TripleIndex index = readIndex(relationURI);
+        for (final String classURI : classURIs) {
+            collection.addAll(index.getLexicalForms(classURI, relationURI));
+        }
         return collection;
     }
 
+    /**
+     * @return The current snapshot of the model, after indexing the relation if it was not
+     */
+    protected TripleIndex readIndex(final String relationURI) {
+        TripleIndex index = factIndex;
+        if (!index.isPrefetched(relationURI)) {
+            prefetch(Collections.singletonList(relationURI));
+            index = factIndex;
+        }
+        return index;
+    }
+
     protected OntResource getOrCreateResource(final String URI) {
-        final OntResource resource;
-        if (resourceCache.containsKey(URI)) {
-            resource = resourceCache.get(URI);
-        } else {
+        OntResource resource = resourceCache.get(URI);
+        if (resource == null) {
             //   resource = model.getOntResource(URI);
             // if (resource == null) {
-            resource = model.createOntResource(URI);
+            synchronized (this) {
+                resource = model.createOntResource(URI);
+            }
             //}
             resourceCache.put(URI, resource);
         }
@@ -307,14 +410,13 @@ public class BaseOntologyDelegate implements OntologyDelegate {
     }
 
     protected OntProperty getOrCreateProperty(final String URI) {
-        final OntProperty property;
-
-        if (propertyCache.containsKey(URI)) {
-            property = propertyCache.get(URI);
-        } else {
+        OntProperty property = propertyCache.get(URI);
+        if (property == null) {
             //    property = model.getOntProperty(URI);
             //  if (property == null) {
-            property = model.createOntProperty(URI);
+            synchronized (this) {
+                property = model.createOntProperty(URI);
+            }
             //}
             propertyCache.put(URI, property);
         }
@@ -329,4 +431,13 @@ public class BaseOntologyDelegate implements OntologyDelegate {
         return ontClass;
     }*/
 
+    private static final class Change {
+        private final Statement statement;
+        private final boolean addition;
+
+        private Change(final Statement statement, final boolean addition) {
+            this.statement = statement;
+            this.addition = addition;
+        }
+    }
 }
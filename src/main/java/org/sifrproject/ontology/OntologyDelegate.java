@@ -5,6 +5,7 @@ import com.hp.hpl.jena.ontology.OntModel;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 
 public interface OntologyDelegate {
@@ -20,11 +21,54 @@ public interface OntologyDelegate {
     void addLiteralStatement(final String sourceURI, final String propertyURI, final String literal);
     void addLiteralStatement(final String sourceURI, final String propertyURI, final String literal, final String languageCode);
 
+    /**
+     * Record the changes made to the model from now on as an RDF patch, {@link #writeModel()} then writes the patch
+     * instead of the whole model
+     *
+     * @param patchFileSuffix Appended to the ontology name for the patch file, a .gz or .bz2 suffix compresses it
+     */
+    void recordChanges(final String patchFileSuffix);
+
+    /**
+     * Write phase: apply the changes buffered since the model was loaded (or since the last call) to the model, in
+     * their order. Until then, the lookups read a snapshot of the model without locking and do not see the changes;
+     * after, the relations are indexed again from the updated model on their next lookup.
+     */
+    void applyChanges();
+
+    /**
+     * Apply the buffered changes and write the model, or the patch of the changes if they are recorded
+     */
     void writeModel();
 
     Collection<String> getObjectsThroughRelation(String classURI, String relationURI);
     Collection<String> getObjectsThroughRelation(final Collection<String> classURIs, final String propertyURI);
 
+    /**
+     * @return The lexical forms of the objects of the relation for the class, without the language tag or the datatype
+     * of the literals
+     */
+    Collection<String> getLexicalFormsThroughRelation(String classURI, String relationURI);
+
+    /**
+     * @return The distinct lexical forms of the objects of the relation for the classes
+     */
+    Collection<String> getLexicalFormsThroughRelation(Collection<String> classURIs, String relationURI);
+
+    /**
+     * Scan the model once for each of the relations and keep their objects in memory for all the classes, subsequent
+     * calls to getObjectsThroughRelation for these relations are answered from the index without accessing the model
+     *
+     * @param relationURIs The URIs of the relations to prefetch
+     */
+    void prefetch(final Collection<String> relationURIs);
+
+    /**
+     * @param relationURI The URI of the relation, prefetched if it was not
+     * @return The objects of the relation for all the classes that have some
+     */
+    Map<String, Collection<String>> getRelationObjects(final String relationURI);
+
     String getOntologyName();
 
     void appendModel(final OntModel ontModel);
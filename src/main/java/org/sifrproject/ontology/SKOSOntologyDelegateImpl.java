@@ -5,7 +5,6 @@ import org.sifrproject.cli.OWLOntologyCleaner;
 import org.sifrproject.ontology.prefix.OntologyPrefix;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.JedisPool;
 
 import java.util.Collection;
 
@@ -25,8 +24,8 @@ public final class SKOSOntologyDelegateImpl extends BaseOntologyDelegate impleme
     private static final String SKOS_PREF_LABEL_URI = OntologyPrefix.getURI(OWLOntologyCleaner.SKOS_PREF_LABEL);
 
     @SuppressWarnings("HardcodedFileSeparator")
-    public SKOSOntologyDelegateImpl(final String outputFileName, final JedisPool jedisPool) {
-        super(outputFileName, jedisPool);
+    public SKOSOntologyDelegateImpl(final String outputFileName) {
+        super(outputFileName);
     }
 
     @Override
@@ -0,0 +1,242 @@
+package org.sifrproject.ontology;
+
+
+import java.util.*;
+
+/**
+ * Immutable in-memory index of the objects of a set of relations for all the subjects of an ontology, filled by
+ * scanning the model once per relation. Once a relation is indexed, the lookups for that relation are answered from the
+ * index without accessing the model, and without locking: the index is never modified once built, adding relations
+ * builds a new index that shares the dictionaries and the relations of the former one (see
+ * {@link Builder#Builder(TripleIndex)}).
+ * <p>
+ * The subjects and the objects are dictionary-encoded: each distinct term is stored once and identified by an int, and
+ * the objects of each relation are stored as one array of term ids in subject order, with the offset of each subject
+ * in a second array. The objects of a subject are sorted and distinct.
+ */
+public final class TripleIndex {
+
+    /**
+     * The index without any relation
+     */
+    public static final TripleIndex EMPTY = new TripleIndex(Collections.emptyMap(), new String[0], new String[0],
+            new String[0], Collections.emptyMap());
+
+    private final Map<String, Integer> subjectIds;
+    private final String[] subjects;
+    private final String[] terms;
+    private final String[] lexicalForms;
+    private final Map<String, Relation> relations;
+
+    private TripleIndex(final Map<String, Integer> subjectIds, final String[] subjects, final String[] terms,
+                        final String[] lexicalForms, final Map<String, Relation> relations) {
+        this.subjectIds = subjectIds;
+        this.subjects = subjects;
+        this.terms = terms;
+        this.lexicalForms = lexicalForms;
+        this.relations = relations;
+    }
+
+    public boolean isPrefetched(final String relationURI) {
+        return relations.containsKey(relationURI);
+    }
+
+    /**
+     * @param classURI    The URI of the class
+     * @param relationURI The URI of the relation
+     * @return The string representations of the objects of the relation for the class, an empty list if the class has
+     * none, or {@code null} if the relation was not indexed
+     */
+    public List<String> getObjects(final String classURI, final String relationURI) {
+        return getTerms(classURI, relationURI, terms);
+    }
+
+    /**
+     * @return The lexical forms of the objects, without language tag or datatype for the literals, see
+     * {@link #getObjects(String, String)}
+     */
+    public List<String> getLexicalForms(final String classURI, final String relationURI) {
+        return getTerms(classURI, relationURI, lexicalForms);
+    }
+
+    private List<String> getTerms(final String classURI, final String relationURI, final String[] dictionary) {
+        final Relation relation = relations.get(relationURI);
+        List<String> objects = null;
+        if (relation != null) {
+            final Integer subjectId = subjectIds.get(classURI);
+            objects = (subjectId == null) ? Collections.emptyList() : relation.objects(subjectId, dictionary);
+        }
+        return objects;
+    }
+
+    /**
+     * @param relationURI The URI of the relation
+     * @return The objects of the relation for all the classes that have some, or {@code null} if the relation was not
+     * indexed
+     */
+    public Map<String, Collection<String>> getRelation(final String relationURI) {
+        final Relation relation = relations.get(relationURI);
+        Map<String, Collection<String>> objects = null;
+        if (relation != null) {
+            final Map<String, Collection<String>> relationObjects = new HashMap<>();
+            for (int subjectId = 0; subjectId < subjects.length; subjectId++) {
+                final List<String> subjectObjects = relation.objects(subjectId, terms);
+                if (!subjectObjects.isEmpty()) {
+                    relationObjects.put(subjects[subjectId], subjectObjects);
+                }
+            }
+            objects = Collections.unmodifiableMap(relationObjects);
+        }
+        return objects;
+    }
+
+    public int getSubjectCount() {
+        return subjects.length;
+    }
+
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    /**
+     * Objects of a relation, in compressed sparse row layout: the objects of subject s are the term ids from
+     * offsets[s] (inclusive) to offsets[s + 1] (exclusive). The subjects added to the index after the relation have no
+     * offsets, and no objects.
+     */
+    private static final class Relation {
+        private final int[] offsets;
+        private final int[] objectIds;
+
+        private Relation(final int[] offsets, final int[] objectIds) {
+            this.offsets = offsets;
+            this.objectIds = objectIds;
+        }
+
+        private List<String> objects(final int subjectId, final String[] dictionary) {
+            if (subjectId >= (offsets.length - 1)) {
+                return Collections.emptyList();
+            }
+            final int start = offsets[subjectId];
+            final int end = offsets[subjectId + 1];
+            return new AbstractList<String>() {
+                @Override
+                public String get(final int index) {
+                    if ((index < 0) || (index >= (end - start))) {
+                        throw new IndexOutOfBoundsException(String.valueOf(index));
+                    }
+                    return dictionary[objectIds[start + index]];
+                }
+
+                @Override
+                public int size() {
+                    return end - start;
+                }
+            };
+        }
+    }
+
+    /**
+     * Collects the objects of the relations before encoding them, not thread-safe
+     */
+    public static final class Builder {
+        private final TripleIndex base;
+        private final Map<String, Map<String, Set<String>>> objects = new HashMap<>();
+        private final Map<String, String> lexicalForms = new HashMap<>();
+
+        public Builder() {
+            this(EMPTY);
+        }
+
+        /**
+         * @param index The index extended by the new one: its relations are shared and not copied, the new subjects and
+         *              objects are appended to its dictionaries. A relation of the index that is added again is replaced
+         *              by the objects added to the builder.
+         */
+        public Builder(final TripleIndex index) {
+            base = index;
+        }
+
+        /**
+         * Declare a relation, so that it is indexed even if no statement is added for it
+         */
+        public Builder addRelation(final String relationURI) {
+            objects.computeIfAbsent(relationURI, uri -> new HashMap<>());
+            return this;
+        }
+
+        /**
+         * @param object      The string representation of the object
+         * @param lexicalForm The lexical form of the object if it is a literal, its string representation otherwise
+         */
+        public Builder add(final String subject, final String relationURI, final String object, final String lexicalForm) {
+            objects.computeIfAbsent(relationURI, uri -> new HashMap<>())
+                    .computeIfAbsent(subject, uri -> new TreeSet<>())
+                    .add(object);
+            lexicalForms.putIfAbsent(object, lexicalForm);
+            return this;
+        }
+
+        @SuppressWarnings("OverlyLongMethod")
+        public TripleIndex build() {
+            //The ids of the base index are kept, its relations stay valid
+            final Map<String, Integer> subjectIds = new HashMap<>(base.subjectIds);
+            final List<String> subjects = new ArrayList<>(Arrays.asList(base.subjects));
+            final Map<String, Integer> termIds = new HashMap<>();
+            for (int termId = 0; termId < base.terms.length; termId++) {
+                termIds.put(base.terms[termId], termId);
+            }
+            final List<String> terms = new ArrayList<>(Arrays.asList(base.terms));
+            for (final Map<String, Set<String>> relationObjects : objects.values()) {
+                for (final Map.Entry<String, Set<String>> entry : relationObjects.entrySet()) {
+                    if (!subjectIds.containsKey(entry.getKey())) {
+                        subjectIds.put(entry.getKey(), subjects.size());
+                        subjects.add(entry.getKey());
+                    }
+                    for (final String object : entry.getValue()) {
+                        if (!termIds.containsKey(object)) {
+                            termIds.put(object, terms.size());
+                            terms.add(object);
+                        }
+                    }
+                }
+            }
+
+            final Map<String, Relation> relations = new HashMap<>(base.relations);
+            for (final Map.Entry<String, Map<String, Set<String>>> relationEntry : objects.entrySet()) {
+                final Map<String, Set<String>> relationObjects = relationEntry.getValue();
+                final int[] offsets = new int[subjects.size() + 1];
+                int objectCount = 0;
+                for (int subjectId = 0; subjectId < subjects.size(); subjectId++) {
+                    offsets[subjectId] = objectCount;
+                    final Set<String> subjectObjects = relationObjects.get(subjects.get(subjectId));
+                    if (subjectObjects != null) {
+                        objectCount += subjectObjects.size();
+                    }
+                }
+                offsets[subjects.size()] = objectCount;
+
+                final int[] objectIds = new int[objectCount];
+                for (int subjectId = 0; subjectId < subjects.size(); subjectId++) {
+                    final Set<String> subjectObjects = relationObjects.get(subjects.get(subjectId));
+                    if (subjectObjects != null) {
+                        int position = offsets[subjectId];
+                        for (final String object : subjectObjects) {
+                            objectIds[position] = termIds.get(object);
+                            position++;
+                        }
+                    }
+                }
+                relations.put(relationEntry.getKey(), new Relation(offsets, objectIds));
+            }
+
+            final String[] termArray = terms.toArray(new String[terms.size()]);
+            final String[] lexicalFormArray = Arrays.copyOf(base.lexicalForms, termArray.length);
+            for (int termId = base.terms.length; termId < termArray.length; termId++) {
+                final String lexicalForm = lexicalForms.get(termArray[termId]);
+                //The string representation of the resources and plain literals is shared
+                lexicalFormArray[termId] = termArray[termId].equals(lexicalForm) ? termArray[termId] : lexicalForm;
+            }
+            return new TripleIndex(subjectIds, subjects.toArray(new String[subjects.size()]), termArray, lexicalFormArray, relations);
+        }
+    }
+}
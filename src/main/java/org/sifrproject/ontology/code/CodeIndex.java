@@ -0,0 +1,67 @@
+package org.sifrproject.ontology.code;
+
+
+import org.sifrproject.ontology.OntologyDelegate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Code of each class of an ontology, resolved once when the index is built: the relations of the {@link CodeRules} are
+ * scanned in priority order and the first value of each class is kept, normalized. The classes without any of these
+ * relations fall back to the code in their URI, which needs no lookup.
+ * <p>
+ * Only the relations declared in the rules are scanned, and a relation that the ontology does not use costs a single
+ * scan. The index is a snapshot of the ontology when it is built, the codes added afterwards are not indexed.
+ */
+public final class CodeIndex implements CodeFinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CodeIndex.class);
+
+    private final Map<String, String> codes;
+    private final CodeRules rules;
+
+    private CodeIndex(final Map<String, String> codes, final CodeRules rules) {
+        this.codes = codes;
+        this.rules = rules;
+    }
+
+    /**
+     * @param ontologyDelegate The ontology, whose code relations are prefetched if they were not
+     * @param rules            Where the codes are in the ontology
+     * @return The code index of the ontology
+     */
+    public static CodeIndex build(final OntologyDelegate ontologyDelegate, final CodeRules rules) {
+        logger.info("Indexing the class codes...");
+        final Map<String, String> codes = new HashMap<>();
+        for (final String relationURI : rules.getRelationURIs()) {
+            final Map<String, Collection<String>> values = ontologyDelegate.getRelationObjects(relationURI);
+            int indexed = 0;
+            for (final Map.Entry<String, Collection<String>> entry : values.entrySet()) {
+                final Iterator<String> iterator = entry.getValue().iterator();
+                if (iterator.hasNext() && (codes.putIfAbsent(entry.getKey(), rules.normalize(iterator.next())) == null)) {
+                    indexed++;
+                }
+            }
+            if (values.isEmpty()) {
+                logger.info("\t{} is not used by the ontology", relationURI);
+            } else {
+                logger.info("\t{} class codes from {}", indexed, relationURI);
+            }
+        }
+        return new CodeIndex(codes, rules);
+    }
+
+    @Override
+    public String getCode(final String classURI) {
+        String code = codes.get(classURI);
+        if (code == null) {
+            code = rules.findCodeInURI(classURI);
+        }
+        return code;
+    }
+}
@@ -0,0 +1,52 @@
+package org.sifrproject.ontology.code;
+
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization steps applied to the codes found by a {@link CodeIndex}, named in lower case in the configuration
+ */
+public enum CodeNormalization {
+
+    /**
+     * Remove the datatype of a typed literal, e.g. A01^^xsd:string becomes A01
+     */
+    STRIP_DATATYPE(Pattern.compile("\\^\\^.*$")),
+    /**
+     * Remove the language tag of a literal, e.g. A01@fr becomes A01
+     */
+    STRIP_LANGUAGE(Pattern.compile("@[a-zA-Z\\-]+$")),
+    /**
+     * Remove the dots, e.g. A01.1 becomes A011
+     */
+    REMOVE_DOTS(Pattern.compile("\\.")),
+    TRIM(Pattern.compile("^\\s+|\\s+$")),
+    UPPER_CASE(null);
+
+    private final Pattern removedPattern;
+
+    CodeNormalization(final Pattern removedPattern) {
+        this.removedPattern = removedPattern;
+    }
+
+    public String apply(final String code) {
+        return (removedPattern == null) ?
+                code.toUpperCase(Locale.ROOT) :
+                removedPattern.matcher(code).replaceAll("");
+    }
+
+    /**
+     * @param name The name of the step in the configuration, e.g. strip_datatype
+     * @return The step, or null if there is no step of that name
+     */
+    public static CodeNormalization fromName(final String name) {
+        CodeNormalization normalization = null;
+        for (final CodeNormalization candidate : values()) {
+            if (candidate.name().equalsIgnoreCase(name)) {
+                normalization = candidate;
+            }
+        }
+        return normalization;
+    }
+}
@@ -0,0 +1,116 @@
+package org.sifrproject.ontology.code;
+
+
+import org.sifrproject.ontology.prefix.OntologyPrefix;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.sifrproject.configuration.ConfigurationConstants.*;
+
+/**
+ * Where the codes of the classes of an ontology are, as declared in the configuration and compiled once: the relations
+ * holding the codes by priority, the pattern extracting a code from the URI of the classes without any of these
+ * relations, and the normalization steps applied to the codes found. The defaults are the notation relations of the
+ * ontologies of the SIFR portal and the fragment of the URI up to the first underscore.
+ */
+public final class CodeRules {
+
+    private static final Logger logger = LoggerFactory.getLogger(CodeRules.class);
+
+    private static final String DEFAULT_RELATIONS = "skos:notation,icd:cdCode,icpc2p:ICPCCODE";
+    private static final String DEFAULT_URI_PATTERN = "#([^_#]*)";
+    private static final String DEFAULT_NORMALIZATION = "strip_datatype";
+    private static final Pattern LIST_SEPARATOR = Pattern.compile("\\s*,\\s*");
+
+    private final List<String> relationURIs;
+    private final Pattern uriPattern;
+    private final List<CodeNormalization> normalization;
+
+    /**
+     * @param relationURIs  The URIs of the relations holding the codes, by decreasing priority
+     * @param uriPattern    The pattern whose first group is the code in the URI of a class, null for no URI fallback
+     * @param normalization The normalization steps, applied in order
+     */
+    public CodeRules(final List<String> relationURIs, final Pattern uriPattern, final List<CodeNormalization> normalization) {
+        this.relationURIs = Collections.unmodifiableList(new ArrayList<>(relationURIs));
+        this.uriPattern = uriPattern;
+        this.normalization = Collections.unmodifiableList(new ArrayList<>(normalization));
+    }
+
+    /**
+     * @return The rules declared in the configuration, the program exits if they are invalid
+     */
+    public static CodeRules fromProperties(final Properties properties) {
+        final List<String> relationURIs = new ArrayList<>();
+        for (final String relation : split(properties.getProperty(CONFIG_CODE_RELATIONS, DEFAULT_RELATIONS))) {
+            relationURIs.add(OntologyPrefix.getURI(relation));
+        }
+
+        Pattern uriPattern = null;
+        final String uriPatternString = properties.getProperty(CONFIG_CODE_URI_PATTERN, DEFAULT_URI_PATTERN).trim();
+        if (!uriPatternString.isEmpty()) {
+            try {
+                uriPattern = Pattern.compile(uriPatternString);
+                if (uriPattern.matcher("").groupCount() < 1) {
+                    logger.error("{} must have a group capturing the code", CONFIG_CODE_URI_PATTERN);
+                    System.exit(1);
+                }
+            } catch (final PatternSyntaxException e) {
+                logger.error("Invalid {}: {}", CONFIG_CODE_URI_PATTERN, e.getLocalizedMessage());
+                System.exit(1);
+            }
+        }
+
+        final List<CodeNormalization> normalization = new ArrayList<>();
+        for (final String stepName : split(properties.getProperty(CONFIG_CODE_NORMALIZATION, DEFAULT_NORMALIZATION))) {
+            final CodeNormalization step = CodeNormalization.fromName(stepName);
+            if (step == null) {
+                logger.error("Unknown code normalization: {}", stepName);
+                System.exit(1);
+            }
+            normalization.add(step);
+        }
+        return new CodeRules(relationURIs, uriPattern, normalization);
+    }
+
+    private static List<String> split(final String list) {
+        final List<String> values = new ArrayList<>();
+        for (final String value : LIST_SEPARATOR.split(list.trim())) {
+            if (!value.isEmpty()) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    public List<String> getRelationURIs() {
+        return relationURIs;
+    }
+
+    /**
+     * @return The code in the URI of the class, normalized, or null if the URI does not match the pattern
+     */
+    public String findCodeInURI(final String classURI) {
+        String code = null;
+        if (uriPattern != null) {
+            final Matcher matcher = uriPattern.matcher(classURI);
+            if (matcher.find()) {
+                code = normalize(matcher.group(1));
+            }
+        }
+        return code;
+    }
+
+    public String normalize(final String code) {
+        String normalizedCode = code;
+        for (final CodeNormalization step : normalization) {
+            normalizedCode = step.apply(normalizedCode);
+        }
+        return normalizedCode;
+    }
+}
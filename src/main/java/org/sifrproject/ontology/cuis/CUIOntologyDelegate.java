@@ -1,27 +1,41 @@
 package org.sifrproject.ontology.cuis;
 
 import org.sifrproject.ontology.OntologyDelegate;
+import org.sifrproject.utils.collections.IntSet;
 
 import java.util.Collection;
 
+/**
+ * Access to the CUIs and TUIs of the classes of an ontology, exchanged in their integer form (see
+ * {@link org.sifrproject.ontology.umls.UMLSIdentifiers}): they are only converted to strings when written to the model.
+ * The values of the model that are not valid identifiers are ignored.
+ */
 public interface CUIOntologyDelegate extends OntologyDelegate {
 
-    Collection<String> findCUIsInAltLabel(final String classURI);
+    /**
+     * @return The CUIs found in the alternative labels of the class, a new set owned by the caller
+     */
+    IntSet findCUIsInAltLabel(final String classURI);
 
-    void getTUIs(final Collection<String> classURIs, final Collection<String> tuis);
-    void getCUIs(final Collection<String> classURIs, final Collection<String> cuis);
+    /**
+     * Prefetch the relations used to find the CUIs, TUIs and codes of the classes (see prefetch)
+     */
+    void prefetchClassFacts();
 
-    void getCUIs(final String classURI, final Collection<String> cuis);
-    void getTUIs(final String classURI, final Collection<String> tuis);
+    void getTUIs(final Collection<String> classURIs, final IntSet tuis);
+    void getCUIs(final Collection<String> classURIs, final IntSet cuis);
+
+    void getCUIs(final String classURI, final IntSet cuis);
+    void getTUIs(final String classURI, final IntSet tuis);
 
 
     @SuppressWarnings("all")
-    void addTUIToModel(final String classURI, final String tui);
+    void addTUIToModel(final String classURI, final int tui);
     @SuppressWarnings("all")
-    void addCUIToModel(final String classURI, final String cui);
+    void addCUIToModel(final String classURI, final int cui);
 
 
-    void purgeCUIsFromAltLabel(final String classURI, final Iterable<String> cuis, final String lang);
+    void purgeCUIsFromAltLabel(final String classURI, final IntSet cuis, final String lang);
     void purgeCodeFromAltLabel(final String classURI, final String code, final String lang);
 
     void cleanSkosAltLabel(final String classURI);
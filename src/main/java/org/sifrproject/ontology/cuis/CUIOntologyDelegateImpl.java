@@ -3,138 +3,132 @@ package org.sifrproject.ontology.cuis;
 import com.hp.hpl.jena.rdf.model.*;
 import org.sifrproject.ontology.BaseOntologyDelegate;
 import org.sifrproject.ontology.prefix.OntologyPrefix;
-import org.sifrproject.utils.CacheKeyPrefixes;
-import org.sifrproject.utils.EmptyResultsCache;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
+import org.sifrproject.ontology.umls.UMLSIdentifiers;
+import org.sifrproject.utils.LoadMode;
+import org.sifrproject.utils.collections.IntSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.ToIntFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class CUIOntologyDelegateImpl extends BaseOntologyDelegate implements CUIOntologyDelegate {
 
-    //private static final Logger logger = LoggerFactory.getLogger(CUIOntologyDelegateImpl.class);
+    private static final Logger logger = LoggerFactory.getLogger(CUIOntologyDelegateImpl.class);
 
     private static final String CUI_PROPERTY_URI = OntologyPrefix.getURI("umls:cui");
     private static final String TUI_PROPERTY_URI = OntologyPrefix.getURI("umls:tui");
     private static final String HAS_STY_PROPERTY_URI = OntologyPrefix.getURI("umls:hasSTY");
     private static final String STY_URL_BASE = "http://purl.lirmm.fr/ontology/STY/";
     private static final Pattern LANG_LITERAL_PATTERN = Pattern.compile("([^\"]*)@([a-z][a-z])");
-    private static final Pattern XMLTYPE_PATTERN = Pattern.compile("\\^\\^");
+    /**
+     * Matches the CUIs in the string representation of the literals, with an optional language tag or datatype
+     */
+    private static final Pattern CUI_LITERAL_PATTERN = Pattern.compile("(C[0-9]{7})(?:@[a-zA-Z\\-]+|\\^\\^.*)?");
 
+    private static final Collection<String> CLASS_FACT_RELATIONS = Arrays.asList(
+            CUI_PROPERTY_URI,
+            TUI_PROPERTY_URI,
+            SKOS_ALT_LABEL_PROPERTY,
+            SKOS_CORE_PREF_LABEL_PROPERTY
+    );
 
-    public CUIOntologyDelegateImpl(final String modelURI, final String outputFileSuffix, final JedisPool jedisPool) {
-        super(modelURI, outputFileSuffix, jedisPool);
+
+    public CUIOntologyDelegateImpl(final String modelURI, final String outputFileSuffix) {
+        super(modelURI, outputFileSuffix);
+    }
+
+    public CUIOntologyDelegateImpl(final String modelURI, final String outputFileSuffix, final LoadMode loadMode) {
+        super(modelURI, outputFileSuffix, loadMode);
     }
 
-    private void cleanXSDTypes(final Iterable<String> source, final Collection<String> target) {
-        for (final String cui : source) {
-            String finalCui = cui;
-            if (cui.contains("^^")) {
-                finalCui = XMLTYPE_PATTERN.split(cui)[0];
+    /**
+     * Add the identifiers of the lexical forms (without language tag or datatype), the values that are not valid
+     * identifiers are logged and skipped
+     */
+    private static void parseIdentifiers(final Iterable<String> lexicalForms, final IntSet target, final ToIntFunction<CharSequence> parser) {
+        for (final String lexicalForm : lexicalForms) {
+            final int parsed = parser.applyAsInt(lexicalForm.trim());
+            if (parsed == UMLSIdentifiers.INVALID) {
+                logger.error("Invalid UMLS identifier skipped: {}", lexicalForm);
+            } else {
+                target.add(parsed);
             }
-            target.add(finalCui);
         }
     }
 
     @Override
-    public void getCUIs(final String classURI, final Collection<String> cuis) {
-        cleanXSDTypes(getObjectsThroughRelation(classURI, CUI_PROPERTY_URI), cuis);
+    public void getCUIs(final String classURI, final IntSet cuis) {
+        parseIdentifiers(getLexicalFormsThroughRelation(classURI, CUI_PROPERTY_URI), cuis, UMLSIdentifiers::cuiToInt);
     }
 
     @Override
-    public void getTUIs(final String classURI, final Collection<String> tuis) {
-        tuis.addAll(getObjectsThroughRelation(classURI, TUI_PROPERTY_URI));
+    public void getTUIs(final String classURI, final IntSet tuis) {
+        parseIdentifiers(getLexicalFormsThroughRelation(classURI, TUI_PROPERTY_URI), tuis, UMLSIdentifiers::tuiToInt);
     }
 
     @Override
-    public void getCUIs(final Collection<String> classURIs, final Collection<String> cuis) {
-        cleanXSDTypes(getObjectsThroughRelation(classURIs, CUI_PROPERTY_URI), cuis);
+    public void getCUIs(final Collection<String> classURIs, final IntSet cuis) {
+        parseIdentifiers(getLexicalFormsThroughRelation(classURIs, CUI_PROPERTY_URI), cuis, UMLSIdentifiers::cuiToInt);
     }
 
     @Override
-    public void getTUIs(final Collection<String> classURIs, final Collection<String> tuis) {
-        tuis.addAll(getObjectsThroughRelation(classURIs, TUI_PROPERTY_URI));
+    public void getTUIs(final Collection<String> classURIs, final IntSet tuis) {
+        parseIdentifiers(getLexicalFormsThroughRelation(classURIs, TUI_PROPERTY_URI), tuis, UMLSIdentifiers::tuiToInt);
     }
 
 
     @SuppressWarnings("HardcodedFileSeparator")
     @Override
-    public void addTUIToModel(final String classURI, final String tui) {
-        synchronized (model) {
-            addLiteralStatement(classURI, TUI_PROPERTY_URI, tui);
-            addStatement(classURI, HAS_STY_PROPERTY_URI, STY_URL_BASE + tui+"/");
-        }
+    public void addTUIToModel(final String classURI, final int tui) {
+        final String tuiString = UMLSIdentifiers.intToTUI(tui);
+        addLiteralStatement(classURI, TUI_PROPERTY_URI, tuiString);
+        addStatement(classURI, HAS_STY_PROPERTY_URI, STY_URL_BASE + tuiString + "/");
     }
 
     @Override
-    public void addCUIToModel(final String classURI, final String cui) {
-        synchronized (model) {
-            model.add(getOrCreateResource(classURI), getOrCreateProperty(CUI_PROPERTY_URI), cui);
-        }
+    public void addCUIToModel(final String classURI, final int cui) {
+        addLiteralStatement(classURI, CUI_PROPERTY_URI, UMLSIdentifiers.intToCUI(cui));
     }
 
     @Override
-    public void purgeCUIsFromAltLabel(final String classURI, final Iterable<String> cuis, final String lang) {
-        //cuisFromAltLabel(model, classURI, toRemove);
-        for (final String value : cuis) {
-            model.remove(getOrCreateResource(classURI),
-                    getOrCreateProperty(SKOS_ALT_LABEL_PROPERTY),
-                    ResourceFactory.createLangLiteral(value, lang));
-
-            model.remove(getOrCreateResource(classURI),
-                    getOrCreateProperty(SKOS_ALT_LABEL_PROPERTY),
-                    ResourceFactory.createPlainLiteral(value));
+    public void purgeCUIsFromAltLabel(final String classURI, final IntSet cuis, final String lang) {
+        for (int i = 0; i < cuis.size(); i++) {
+            final String value = UMLSIdentifiers.intToCUI(cuis.get(i));
+            removeAltLabel(classURI, ResourceFactory.createLangLiteral(value, lang));
+            removeAltLabel(classURI, ResourceFactory.createPlainLiteral(value));
         }
     }
 
     @Override
     public void purgeCodeFromAltLabel(final String classURI, final String code, final String lang) {
-        //cuisFromAltLabel(model, classURI, toRemove);
-        model.remove(getOrCreateResource(classURI),
-                getOrCreateProperty(SKOS_ALT_LABEL_PROPERTY),
-                ResourceFactory.createLangLiteral(code, lang));
+        removeAltLabel(classURI, ResourceFactory.createLangLiteral(code, lang));
     }
 
-    @Override
-    public Collection<String> findCUIsInAltLabel(final String classURI) {
-        Collection<String> cuis;
-
-        try (Jedis jedis = jedisPool.getResource()) {
-            final String key = CacheKeyPrefixes.ALTCUI + classURI;
-            cuis = jedis.lrange(key, 0, -1);
-
-            if (cuis.isEmpty() && !EmptyResultsCache.isEmpty(key, jedis)) {
-                cuis = new ArrayList<>();
-                synchronized (model) {
-                    cuisFromAltLabel(model, classURI, cuis);
-                }
-                if (cuis.isEmpty()) {
-                    EmptyResultsCache.markEmpty(key, jedis);
-                } else {
-                    jedis.lpush(key, cuis.toArray(new String[cuis.size()]));
-                }
-            }
-        }
-        return cuis;
+    private void removeAltLabel(final String classURI, final Literal altLabel) {
+        bufferDeletion(ResourceFactory.createStatement(
+                ResourceFactory.createResource(classURI),
+                ResourceFactory.createProperty(SKOS_ALT_LABEL_PROPERTY),
+                altLabel));
     }
 
-    private void cuisFromAltLabel(final Model model, final String classURI, final Collection<String> cuis) {
-        final StmtIterator stmtIterator = model.listStatements(
-                getOrCreateResource(classURI),
-                getOrCreateProperty(SKOS_ALT_LABEL_PROPERTY),
-                (RDFNode) null);
+    @Override
+    public void prefetchClassFacts() {
+        prefetch(CLASS_FACT_RELATIONS);
+    }
 
-        while (stmtIterator.hasNext()) {
-            final Statement statement = stmtIterator.nextStatement();
-            final String altLabel = statement.getString();
-            final Pattern pattern = Pattern.compile("(C[0-9][0-9][0-9][0-9][0-9][0-9][0-9])");
-            final Matcher matcher = pattern.matcher(altLabel);
+    @Override
+    public IntSet findCUIsInAltLabel(final String classURI) {
+        final IntSet cuis = new IntSet();
+        for (final String altLabel : readIndex(SKOS_ALT_LABEL_PROPERTY).getObjects(classURI, SKOS_ALT_LABEL_PROPERTY)) {
+            final Matcher matcher = CUI_LITERAL_PATTERN.matcher(altLabel);
             if (matcher.matches()) {
-                cuis.add(altLabel);
+                cuis.add(UMLSIdentifiers.cuiToInt(matcher.group(1)));
             }
         }
+        return cuis;
     }
 
     @Override
@@ -154,9 +148,7 @@ public class CUIOntologyDelegateImpl extends BaseOntologyDelegate implements CUI
             final String lowerCasePl = prefLabel.toLowerCase();
             final String trimmedPl = lowerCasePl.trim();
             if (trimmedPl.equals(lowerCaseAl.trim())) {
-                model.remove(getOrCreateResource(classURI),
-                        getOrCreateProperty(SKOS_ALT_LABEL_PROPERTY),
-                        ResourceFactory.createLangLiteral(literal, languageCode));
+                removeAltLabel(classURI, ResourceFactory.createLangLiteral(literal, languageCode));
             }
         }
     }
@@ -174,9 +166,10 @@ public class CUIOntologyDelegateImpl extends BaseOntologyDelegate implements CUI
             languageCode = matcher.group(2);
         }
 
-        model.remove(getOrCreateResource(classURI),
-                getOrCreateProperty(SKOS_CORE_PREF_LABEL_PROPERTY),
-                ResourceFactory.createPlainLiteral(prefLabel));
+        bufferDeletion(ResourceFactory.createStatement(
+                ResourceFactory.createResource(classURI),
+                ResourceFactory.createProperty(SKOS_CORE_PREF_LABEL_PROPERTY),
+                ResourceFactory.createPlainLiteral(prefLabel)));
 
         final String newAltLabel = literal;
         literal = code + " - " + literal;
@@ -12,13 +12,6 @@ public final class DefaultMapping implements Mapping, Comparable<Mapping>{
         this.property = property;
     }
 
-    DefaultMapping(final String key) {
-        final String[] parts = key.split("\\|");
-        sourceClass = parts[0];
-        property = parts[1];
-        targetClass = parts[2];
-    }
-
     @Override
     public String getSourceClass() {
         return sourceClass;
@@ -6,18 +6,17 @@ import com.hp.hpl.jena.ontology.OntModel;
 import com.hp.hpl.jena.ontology.OntModelSpec;
 import com.hp.hpl.jena.rdf.model.*;
 import org.sifrproject.ontology.prefix.OntologyPrefix;
-import org.sifrproject.utils.EmptyResultsCache;
+import org.sifrproject.ontology.prefix.UriPrefixTable;
+import org.sifrproject.utils.LoadMode;
 import org.sifrproject.utils.OntologyLoader;
+import org.sifrproject.utils.cache.ContentFingerprint;
+import org.sifrproject.utils.cache.TwoTierCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
 
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 
 @SuppressWarnings("MethodParameterOfConcreteClass")
 public class DefaultOntologyMappingDelegate implements OntologyMappingDelegate {
@@ -37,21 +36,32 @@ public class DefaultOntologyMappingDelegate implements OntologyMappingDelegate {
     private final OntModel mappingModel;
     private final String sourceOntologyName;
     private final String targetOntologyName;
-    private final JedisPool jedisPool;
+    private final TwoTierCache cache;
+    private final MappingListCodec mappingCodec;
 
-    public DefaultOntologyMappingDelegate(final String sourceOntologyName, final String targetOntologyName, final JedisPool jedisPool) {
+    public DefaultOntologyMappingDelegate(final String sourceOntologyName, final String targetOntologyName, final TwoTierCache cache) {
         this.sourceOntologyName = sourceOntologyName;
         this.targetOntologyName = targetOntologyName;
         mappingModel = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM_RDFS_INF);
-        this.jedisPool = jedisPool;
+        mappingCodec = new MappingListCodec(UriPrefixTable.withSystemPrefixes(mappingModel.getNsPrefixMap()));
+        this.cache = cache.inNamespace(namespace(sourceOntologyName, targetOntologyName), ContentFingerprint.unique());
     }
 
-    public DefaultOntologyMappingDelegate(final String mappingsFile,final String sourceOntologyName, final String targetOntologyName, final JedisPool jedisPool) {
+    public DefaultOntologyMappingDelegate(final String mappingsFile,final String sourceOntologyName, final String targetOntologyName, final TwoTierCache cache) {
+        this(mappingsFile, sourceOntologyName, targetOntologyName, cache, LoadMode.RDFS_INFERENCE);
+    }
+
+    public DefaultOntologyMappingDelegate(final String mappingsFile, final String sourceOntologyName, final String targetOntologyName, final TwoTierCache cache, final LoadMode loadMode) {
         this.sourceOntologyName = sourceOntologyName;
         this.targetOntologyName = targetOntologyName;
-        mappingModel = OntologyLoader.loadModel(mappingsFile);
-        this.jedisPool = jedisPool;
+        mappingModel = OntologyLoader.loadModel(mappingsFile, loadMode);
+        mappingCodec = new MappingListCodec(UriPrefixTable.withSystemPrefixes(mappingModel.getNsPrefixMap()));
+        this.cache = cache.inNamespace(namespace(sourceOntologyName, targetOntologyName), ContentFingerprint.of(mappingsFile));
+
+    }
 
+    private static String namespace(final String sourceOntologyName, final String targetOntologyName) {
+        return sourceOntologyName + "_" + targetOntologyName + "_mappings";
     }
 
     @Override
@@ -61,45 +71,37 @@ public class DefaultOntologyMappingDelegate implements OntologyMappingDelegate {
 
     @SuppressWarnings("FeatureEnvy")
     private synchronized List<Mapping> getMappings(final String sourceClass, final String targetClass){
+        final String key = mappingKey(sourceClass, targetClass);
+        List<Mapping> mappings = cache.get(key, mappingCodec);
+        if (mappings == null) {
+            mappings = mappingsFromModel(sourceClass, targetClass);
+            cache.put(key, mappings, mappingCodec);
+        }
+        logger.debug("Found {} mappings...", mappings.size());
+        return mappings;
+    }
+
+    private static String mappingKey(final String sourceClass, final String targetClass) {
         String key = MAPPING_CACHE_PREFIX;
-        OntClass subject = null;
         if (sourceClass != null) {
-            subject = mappingModel.createClass(sourceClass);
             key+=sourceClass;
         }
-
-        OntClass object = null;
         if (targetClass != null) {
-            object = mappingModel.createClass(targetClass);
             key+="|"+targetClass;
         }
+        return key;
+    }
+
+    private List<Mapping> mappingsFromModel(final String sourceClass, final String targetClass) {
+        final OntClass subject = (sourceClass == null) ? null : mappingModel.createClass(sourceClass);
+        final OntClass object = (targetClass == null) ? null : mappingModel.createClass(targetClass);
         final List<Mapping> mappings = new ArrayList<>();
-        try (Jedis jedis = jedisPool.getResource()) {
-            final List<String> cachedMappings = jedis.lrange(key, 0, -1);
-            if (cachedMappings.isEmpty() && !EmptyResultsCache.isEmpty(key, jedis)) {
-
-                getMappingsForProperty(mappings,subject,object,MAPPING_EXACTMATCH_PROPERTY_URI);
-                getMappingsForProperty(mappings,subject,object,MAPPING_CLOSEMATCH_PROPERTY_URI);
-                getMappingsForProperty(mappings,subject,object,MAPPING_RELATEDMATCH_PROPERTY_URI);
-                getMappingsForProperty(mappings,subject,object,MAPPING_BROADMATCH_PROPERTY_URI);
-                getMappingsForProperty(mappings,subject,object,MAPPING_FREETRANSLATION_PROPERTY_URI);
-                getMappingsForProperty(mappings,subject,object,MAPPING_TRANSLATION_PROPERTY_URI);
-
-
-                if (mappings.isEmpty()) {
-                    EmptyResultsCache.markEmpty(key, jedis);
-                } else {
-                    mappings.forEach(mapping -> cachedMappings.add(mapping.toString()));
-                    final String[] strMapping = cachedMappings.toArray(new String[mappings.size()]);
-                    jedis.lpush(key, strMapping);
-                }
-            } else {
-                for(final String cachedMapping: cachedMappings){
-                    mappings.add(new DefaultMapping(cachedMapping));
-                }
-            }
-        }
-        logger.debug("Found {} mappings...", mappings.size());
+        getMappingsForProperty(mappings,subject,object,MAPPING_EXACTMATCH_PROPERTY_URI);
+        getMappingsForProperty(mappings,subject,object,MAPPING_CLOSEMATCH_PROPERTY_URI);
+        getMappingsForProperty(mappings,subject,object,MAPPING_RELATEDMATCH_PROPERTY_URI);
+        getMappingsForProperty(mappings,subject,object,MAPPING_BROADMATCH_PROPERTY_URI);
+        getMappingsForProperty(mappings,subject,object,MAPPING_FREETRANSLATION_PROPERTY_URI);
+        getMappingsForProperty(mappings,subject,object,MAPPING_TRANSLATION_PROPERTY_URI);
         return mappings;
     }
 
@@ -125,6 +127,30 @@ public class DefaultOntologyMappingDelegate implements OntologyMappingDelegate {
         return getMappings(classURI,null);
     }
 
+    @Override
+    public Map<String, List<Mapping>> sourceMappings(final Collection<String> classURIs) {
+        final Map<String, String> keys = new HashMap<>();
+        for (final String classURI : classURIs) {
+            keys.put(mappingKey(classURI, null), classURI);
+        }
+        final Map<String, List<Mapping>> cachedMappings = cache.getAll(keys.keySet(), mappingCodec);
+
+        final Map<String, List<Mapping>> mappings = new HashMap<>();
+        final Map<String, List<Mapping>> mappingsToCache = new HashMap<>();
+        synchronized (this) {
+            for (final Map.Entry<String, String> key : keys.entrySet()) {
+                List<Mapping> classMappings = cachedMappings.get(key.getKey());
+                if (classMappings == null) {
+                    classMappings = mappingsFromModel(key.getValue(), null);
+                    mappingsToCache.put(key.getKey(), classMappings);
+                }
+                mappings.put(key.getValue(), classMappings);
+            }
+        }
+        cache.putAll(mappingsToCache, mappingCodec);
+        return mappings;
+    }
+
     @Override
     public List<Mapping> targetMappings(final String classURI) {
         return getMappings(null,classURI);
@@ -0,0 +1,56 @@
+package org.sifrproject.ontology.mapping;
+
+
+import org.sifrproject.ontology.prefix.UriPrefixTable;
+import org.sifrproject.utils.cache.CacheCodec;
+import org.sifrproject.utils.cache.CompactReader;
+import org.sifrproject.utils.cache.CompactWriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cache encoding of mapping lists, the source, property and target of each mapping being encoded against a prefix
+ * table. The mappings are decoded directly from the URIs, without an intermediate string form to split.
+ */
+class MappingListCodec implements CacheCodec<List<Mapping>> {
+
+    private final UriPrefixTable prefixTable;
+    private final String format;
+
+    MappingListCodec(final UriPrefixTable prefixTable) {
+        this.prefixTable = prefixTable;
+        format = "mappings1-" + prefixTable.getFingerprint();
+    }
+
+    @Override
+    public String getFormat() {
+        return format;
+    }
+
+    @Override
+    public byte[] encode(final List<Mapping> mappings) {
+        final CompactWriter writer = new CompactWriter(1 + (mappings.size() * 32));
+        writer.writeVarInt(mappings.size());
+        for (final Mapping mapping : mappings) {
+            prefixTable.write(writer, mapping.getSourceClass());
+            prefixTable.write(writer, mapping.getProperty());
+            prefixTable.write(writer, mapping.getTargetClass());
+        }
+        return writer.toByteArray();
+    }
+
+    @Override
+    public List<Mapping> decode(final byte[] bytes) {
+        final CompactReader reader = new CompactReader(bytes);
+        final int count = reader.readVarInt();
+        final List<Mapping> mappings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final String sourceClass = prefixTable.read(reader);
+            final String property = prefixTable.read(reader);
+            mappings.add(new DefaultMapping(sourceClass, prefixTable.read(reader), property));
+        }
+        return Collections.unmodifiableList(mappings);
+    }
+}
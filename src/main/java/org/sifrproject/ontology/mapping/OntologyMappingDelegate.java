@@ -2,7 +2,9 @@ package org.sifrproject.ontology.mapping;
 
 import org.sifrproject.ontology.mapping.Mapping;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface OntologyMappingDelegate {
 
@@ -10,6 +12,14 @@ public interface OntologyMappingDelegate {
     void putMapping(Mapping mapping);
 
     List<Mapping> sourceMappings(String classURI);
+
+    /**
+     * Batch version of sourceMappings, the cached mappings of all the classes are read in a few round trips
+     *
+     * @param classURIs The URIs of the source classes
+     * @return The mappings of each class, classes without mappings are mapped to an empty list
+     */
+    Map<String, List<Mapping>> sourceMappings(Collection<String> classURIs);
     List<Mapping> targetMappings(String classURI);
 
     void writeMappings();
@@ -1,6 +1,5 @@
 package org.sifrproject.ontology.matching;
 
-import org.getalp.lexsema.similarity.signatures.DefaultSemanticSignatureFactory;
 import org.getalp.lexsema.similarity.signatures.SemanticSignature;
 import org.getalp.lexsema.util.Language;
 import org.sifrproject.ontology.umls.UMLSLanguageCode;
@@ -62,7 +61,7 @@ public class CUITermImpl implements CUITerm {
 
     @Override
     public void appendToSignature(final String text) {
-        semanticSignature.appendSignature(DefaultSemanticSignatureFactory.DEFAULT.createSemanticSignature(text));
+        semanticSignature.appendSignature(SemanticSignatureCache.DEFAULT.getSignature(text, languageCode));
     }
 
     @Override
@@ -0,0 +1,120 @@
+package org.sifrproject.ontology.matching;
+
+
+import org.sifrproject.utils.cache.CacheCodec;
+import org.sifrproject.utils.cache.HashedKeys;
+import org.sifrproject.utils.cache.TwoTierCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of the similarity scores of (term, label) pairs. The keys are 128-bit hashes of the term, the label and the
+ * version of the measure (see {@link HashedKeys}), and the scores are stored as 8-byte doubles, so that an entry has a
+ * fixed size whatever the length of the texts.
+ * <p>
+ * The entries can expire after a time to live (redis backend only), and the number of entries is capped (the writes
+ * are counted, a score written twice counts twice): when a write exceeds the cap, the namespace of the scores is
+ * invalidated (a new generation is started, see {@link TwoTierCache#invalidateNamespace(String)}) and the scores are
+ * computed again from an empty store. The entries of the former generation are then deleted from the backend (see
+ * {@link TwoTierCache#deleteEntries()}, the embedded store reclaims their space at its next opening): the cap bounds
+ * the storage of the scores, whether or not they expire.
+ */
+final class ScoreCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScoreCache.class);
+
+    private static final String NAMESPACE = "scores";
+    private static final String ENTRY_COUNTER = "entries";
+
+    private final TwoTierCache rootCache;
+    private final String measureVersion;
+    private final long ttlSeconds;
+    private final long maxEntries;
+
+    private volatile TwoTierCache cache;
+
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder rolloverCount = new LongAdder();
+
+    /**
+     * @param cache          The cache in which the namespace of the scores is opened
+     * @param measureVersion The name and parameters of the measure, to change when they change so that the scores
+     *                       computed with the former ones are not reused
+     * @param ttlSeconds     The time to live of the scores in seconds, 0 for no expiry
+     * @param maxEntries     The maximum number of scores in the store, 0 for no limit
+     */
+    ScoreCache(final TwoTierCache cache, final String measureVersion, final long ttlSeconds, final long maxEntries) {
+        rootCache = cache;
+        this.measureVersion = measureVersion;
+        this.ttlSeconds = ttlSeconds;
+        this.maxEntries = maxEntries;
+        this.cache = cache.inNamespace(NAMESPACE, measureVersion);
+    }
+
+    String key(final String term, final String label) {
+        return HashedKeys.of(measureVersion, term, label);
+    }
+
+    /**
+     * @return The cached scores, the keys that are not cached are absent from the map
+     */
+    Map<String, Double> getScores(final Collection<String> keys) {
+        return cache.getAll(keys, ScoreCodec.INSTANCE);
+    }
+
+    /**
+     * Store scores, evicting all the scores of the store if the cap is exceeded. Meant to be called by a single writer.
+     */
+    void putScores(final Map<String, Double> scores) {
+        if (!scores.isEmpty()) {
+            final TwoTierCache scoreCache = cache;
+            scoreCache.putAll(scores, ScoreCodec.INSTANCE, ttlSeconds);
+            final long entries = scoreCache.incrementCounter(ENTRY_COUNTER, scores.size());
+            if ((maxEntries > 0L) && (entries > maxEntries)) {
+                rootCache.invalidateNamespace(NAMESPACE);
+                cache = rootCache.inNamespace(NAMESPACE, measureVersion);
+                scoreCache.deleteEntries();
+                evictedCount.add(entries);
+                rolloverCount.increment();
+                logger.info("Score cache full ({} entries), evicted all the scores", entries);
+            }
+        }
+    }
+
+    void logStatistics() {
+        logger.info("Score cache: {} entries evicted in {} rollovers (cap {}, time to live {}s)",
+                evictedCount.sum(), rolloverCount.sum(), maxEntries, ttlSeconds);
+    }
+
+    private static final class ScoreCodec implements CacheCodec<Double> {
+        private static final ScoreCodec INSTANCE = new ScoreCodec();
+
+        @Override
+        public String getFormat() {
+            return "score1";
+        }
+
+        @Override
+        public byte[] encode(final Double value) {
+            final long bits = Double.doubleToLongBits(value);
+            final byte[] bytes = new byte[Long.BYTES];
+            for (int i = 0; i < Long.BYTES; i++) {
+                bytes[i] = (byte) (bits >>> ((Long.BYTES - 1 - i) * Byte.SIZE));
+            }
+            return bytes;
+        }
+
+        @Override
+        public Double decode(final byte[] bytes) {
+            long bits = 0L;
+            for (final byte value : bytes) {
+                bits = (bits << Byte.SIZE) | (value & 0xFFL);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+    }
+}
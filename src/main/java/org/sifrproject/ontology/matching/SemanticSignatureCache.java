@@ -0,0 +1,66 @@
+package org.sifrproject.ontology.matching;
+
+
+import org.getalp.lexsema.similarity.signatures.DefaultSemanticSignatureFactory;
+import org.getalp.lexsema.similarity.signatures.SemanticSignature;
+import org.getalp.lexsema.util.Language;
+import org.sifrproject.ontology.umls.UMLSLanguageCode;
+import org.sifrproject.utils.cache.BoundedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded cache of the semantic signatures of terms, keyed by term and language, so that the same UMLS strings and
+ * ontology labels are only tokenized once per run.
+ * <p>
+ * The cached signatures are shared and must not be modified: {@link #getSignature(String, UMLSLanguageCode)} is meant
+ * for read-only uses (e.g. as an argument of a similarity measure), {@link #createSignature(String, UMLSLanguageCode)}
+ * returns a private copy that the caller may append to.
+ */
+public final class SemanticSignatureCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SemanticSignatureCache.class);
+
+    private static final int DEFAULT_SIZE = 200_000;
+
+    public static final SemanticSignatureCache DEFAULT = new SemanticSignatureCache(DEFAULT_SIZE);
+
+    private final BoundedCache<String, SemanticSignature> signatures;
+
+    /**
+     * @param maximumSize The maximum number of cached signatures, 0 disables the cache
+     */
+    public SemanticSignatureCache(final int maximumSize) {
+        signatures = new BoundedCache<>(maximumSize);
+    }
+
+    /**
+     * @param text         The text of the term
+     * @param languageCode The language of the term, or null if the signature is not bound to a language
+     * @return The shared signature of the term, which must not be modified
+     */
+    public SemanticSignature getSignature(final String text, final UMLSLanguageCode languageCode) {
+        final String key = (languageCode == null) ? text : (languageCode.getLanguageCode() + '@' + text);
+        SemanticSignature signature = signatures.get(key);
+        if (signature == null) {
+            signature = DefaultSemanticSignatureFactory.DEFAULT.createSemanticSignature(text);
+            if (languageCode != null) {
+                signature.setLanguage(Language.valueOf(languageCode.name()));
+            }
+            signatures.put(key, signature);
+        }
+        return signature;
+    }
+
+    /**
+     * @return A copy of the signature of the term, owned by the caller
+     */
+    public SemanticSignature createSignature(final String text, final UMLSLanguageCode languageCode) {
+        return getSignature(text, languageCode).copy();
+    }
+
+    public void logStatistics() {
+        logger.info("Signature cache: {} hits, {} misses, {} evictions, {} entries",
+                signatures.getHitCount(), signatures.getMissCount(), signatures.getEvictionCount(), signatures.size());
+    }
+}
@@ -1,9 +1,25 @@
 package org.sifrproject.ontology.matching;
 
 
+import java.util.ArrayList;
 import java.util.List;
 
 @FunctionalInterface
 public interface TermSimilarityRanker {
     void rankBySimilarity(List<CUITerm> cuiTermList, String conceptDescription);
+
+    /**
+     * Top-k version of rankBySimilarity, implementations may skip the terms that cannot be among the k most similar
+     * ones, whose score is then left unset
+     *
+     * @param cuiTermList        The candidate terms, left unchanged
+     * @param conceptDescription The text the terms are compared to
+     * @param k                  The number of terms returned
+     * @return The k most similar terms, by decreasing score
+     */
+    default List<CUITerm> getMostSimilar(final List<CUITerm> cuiTermList, final String conceptDescription, final int k) {
+        final List<CUITerm> rankedTerms = new ArrayList<>(cuiTermList);
+        rankBySimilarity(rankedTerms, conceptDescription);
+        return new ArrayList<>(rankedTerms.subList(0, Math.min(k, rankedTerms.size())));
+    }
 }
@@ -2,96 +2,302 @@ package org.sifrproject.ontology.matching;
 
 import org.getalp.lexsema.similarity.measures.SimilarityMeasure;
 import org.getalp.lexsema.similarity.measures.tverski.TverskiIndexSimilarityMeasureBuilder;
-import org.getalp.lexsema.similarity.signatures.DefaultSemanticSignatureFactory;
 import org.getalp.lexsema.similarity.signatures.SemanticSignature;
+import org.sifrproject.utils.cache.TwoTierCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.sifrproject.configuration.ConfigurationConstants.CONFIG_SCORE_CACHE_MAX_ENTRIES;
+import static org.sifrproject.configuration.ConfigurationConstants.CONFIG_SCORE_CACHE_TTL;
 
 public class TverskiTermSimilarityRanker implements PooledTermSimilarityRanker {
 
-    private final JedisPool jedisPool;
-    private static final String SCORE_PREFIX = "rscore_";
+    private final ScoreCache scoreCache;
+    /**
+     * To change when the parameters of the measure change, so that the scores computed with the former ones are not reused
+     */
+    private static final String CACHE_VERSION = "tverski-1-0.5-0.5";
+    private static final long DEFAULT_SCORE_CACHE_MAX_ENTRIES = 10000000L;
 
     private static final Logger logger = LoggerFactory.getLogger(TverskiTermSimilarityRanker.class);
     private final ExecutorService threadPool;
 
-    public TverskiTermSimilarityRanker(final JedisPool jedisPool) {
+    private static final double RATIO_PROPORTION = 0.5d;
+
+    /**
+     * The measure is built once per worker thread and reused for all the terms scored by that thread, the instances
+     * keep internal state while computing and are not shared between threads
+     */
+    @SuppressWarnings("all")
+    private static final ThreadLocal<SimilarityMeasure> similarityMeasure = ThreadLocal.withInitial(
+            () -> new TverskiIndexSimilarityMeasureBuilder()
+                    .alpha(1d).beta(RATIO_PROPORTION).gamma(RATIO_PROPORTION)
+                    .computeRatio(true).fuzzyMatching(true).regularizeOverlapInput(true).normalize(true).build());
+
+    private final SemanticSignatureCache signatureCache;
+    private final int nbThreads;
+
+    /**
+     * Number of new scores buffered before they are written to the cache
+     */
+    private static final int WRITE_BATCH_SIZE = 1000;
+    private static final long WRITER_SHUTDOWN_TIMEOUT_SECONDS = 60L;
+
+    private final ExecutorService scoreWriter = Executors.newSingleThreadExecutor();
+    private final ConcurrentMap<String, Double> pendingScores = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final LongAdder computedCount = new LongAdder();
+    private final LongAdder scoringNanos = new LongAdder();
+    private final LongAdder cachedCount = new LongAdder();
+
+    public TverskiTermSimilarityRanker(final TwoTierCache cache) {
+        this(cache, SemanticSignatureCache.DEFAULT, 0L, DEFAULT_SCORE_CACHE_MAX_ENTRIES);
+    }
+
+    /**
+     * @param cache                The cache of the scores
+     * @param signatureCache       The cache of the signatures of the terms
+     * @param scoreTTLSeconds      The time to live of the cached scores in seconds, 0 for no expiry
+     * @param scoreCacheMaxEntries The maximum number of cached scores, 0 for no limit
+     */
+    public TverskiTermSimilarityRanker(final TwoTierCache cache, final SemanticSignatureCache signatureCache,
+                                       final long scoreTTLSeconds, final long scoreCacheMaxEntries) {
         logger.info("Initializing similarity ranker...");
-        this.jedisPool = jedisPool;
+        scoreCache = new ScoreCache(cache, CACHE_VERSION, scoreTTLSeconds, scoreCacheMaxEntries);
+        this.signatureCache = signatureCache;
         final Runtime runtime = Runtime.getRuntime();
-        final int nbThreads = runtime.availableProcessors();
+        nbThreads = runtime.availableProcessors();
         threadPool = Executors.newFixedThreadPool(nbThreads);
     }
 
-    private static final double RATIO_PROPORTION = 0.5d;
+    /**
+     * @return The ranker, with the expiry and the size of the score cache set by the configuration
+     */
+    public static TverskiTermSimilarityRanker fromProperties(final Properties properties, final TwoTierCache cache) {
+        final long scoreTTLSeconds = Long.valueOf(properties.getProperty(CONFIG_SCORE_CACHE_TTL, "0"));
+        final long scoreCacheMaxEntries = Long.valueOf(properties.getProperty(CONFIG_SCORE_CACHE_MAX_ENTRIES,
+                String.valueOf(DEFAULT_SCORE_CACHE_MAX_ENTRIES)));
+        return new TverskiTermSimilarityRanker(cache, SemanticSignatureCache.DEFAULT, scoreTTLSeconds, scoreCacheMaxEntries);
+    }
 
-    @SuppressWarnings("FeatureEnvy")
     @Override
     public void rankBySimilarity(final List<CUITerm> cuiTermList, final String conceptDescription) {
-        @SuppressWarnings("all")
-        final SimilarityMeasure similarityMeasure = new TverskiIndexSimilarityMeasureBuilder()
-                .alpha(1d).beta(RATIO_PROPORTION).gamma(RATIO_PROPORTION)
-                .computeRatio(true).fuzzyMatching(true).regularizeOverlapInput(true).normalize(true).build();
-
-        final SemanticSignature conceptSemanticSignature =
-                DefaultSemanticSignatureFactory.DEFAULT.createSemanticSignature(conceptDescription);
-        final Collection<IntermediateScorer> scorers = new ArrayList<>();
-
-        try (Jedis jedis = jedisPool.getResource()) {
-            for (final CUITerm cuiTerm : cuiTermList) {
-                final String scoreString = jedis.get(SCORE_PREFIX + "_" + cuiTerm.getTerm() + "_" + conceptDescription);
-                if (scoreString == null) {
-                    scorers.add(new IntermediateScorer(cuiTerm, conceptSemanticSignature, similarityMeasure));
-                } else {
-                    cuiTerm.setScore(Double.valueOf(scoreString));
-                }
+        final List<CUITerm> rankedTerms = getMostSimilar(cuiTermList, conceptDescription, cuiTermList.size());
+        cuiTermList.clear();
+        cuiTermList.addAll(rankedTerms);
+    }
+
+    /**
+     * The terms whose score is not cached are split in one contiguous batch per worker, each scored in a single task,
+     * and only the k best terms are kept in a bounded heap instead of sorting the whole list
+     */
+    @SuppressWarnings("FeatureEnvy")
+    @Override
+    public List<CUITerm> getMostSimilar(final List<CUITerm> cuiTermList, final String conceptDescription, final int k) {
+        final SemanticSignature conceptSemanticSignature = signatureCache.getSignature(conceptDescription, null);
+        final TopTerms topTerms = new TopTerms(k);
+
+        final Collection<String> scoreKeys = new ArrayList<>();
+        for (final CUITerm cuiTerm : cuiTermList) {
+            scoreKeys.add(scoreKey(cuiTerm, conceptDescription));
+        }
+        final Map<String, Double> cachedScores = getScores(scoreKeys);
+        final List<Candidate> candidates = new ArrayList<>();
+        int position = 0;
+        for (final CUITerm cuiTerm : cuiTermList) {
+            final Double cachedScore = cachedScores.get(scoreKey(cuiTerm, conceptDescription));
+            if (cachedScore == null) {
+                candidates.add(new Candidate(cuiTerm, position));
+            } else {
+                cuiTerm.setScore(cachedScore);
+                topTerms.offer(new Candidate(cuiTerm, position));
             }
+            position++;
         }
+        cachedCount.add(cuiTermList.size() - candidates.size());
 
-
-        try {
-            final List<Future<CUITerm>> intermediateScores = threadPool.invokeAll(scorers);
-            try(Jedis jedis = jedisPool.getResource()) {
-                for (final Future<CUITerm> intermediateScore : intermediateScores) {
-                    final CUITerm cuiTerm = intermediateScore.get();
-                    jedis.set(SCORE_PREFIX + "_" + cuiTerm.getTerm() + "_" + conceptDescription, String.valueOf(cuiTerm.getScore()));
+        if (!candidates.isEmpty()) {
+            final Map<String, Double> scores = new HashMap<>();
+            final int batchSize = (candidates.size() + nbThreads - 1) / nbThreads;
+            final Collection<ScoringBatch> batches = new ArrayList<>();
+            for (int batchStart = 0; batchStart < candidates.size(); batchStart += batchSize) {
+                batches.add(new ScoringBatch(candidates.subList(batchStart, Math.min(candidates.size(), batchStart + batchSize)), conceptSemanticSignature));
+            }
+            try {
+                for (final Future<Long> batch : threadPool.invokeAll(batches)) {
+                    scoringNanos.add(batch.get());
+                }
+                for (final Candidate candidate : candidates) {
+                    scores.put(scoreKey(candidate.cuiTerm, conceptDescription), candidate.cuiTerm.getScore());
+                    topTerms.offer(candidate);
                 }
+                computedCount.add(candidates.size());
+            } catch (final InterruptedException | ExecutionException e) {
+                logger.error(e.getLocalizedMessage());
             }
-        } catch (final InterruptedException | ExecutionException e) {
-            logger.error(e.getLocalizedMessage());
+            bufferScores(scores);
+        }
+        return topTerms.toList();
+    }
+
+    /**
+     * Read the scores from the write buffer, then from the cache for those that are not buffered
+     */
+    private Map<String, Double> getScores(final Collection<String> scoreKeys) {
+        final Map<String, Double> scores = new HashMap<>();
+        final Collection<String> missingKeys = new ArrayList<>();
+        for (final String scoreKey : scoreKeys) {
+            final Double score = pendingScores.get(scoreKey);
+            if (score == null) {
+                missingKeys.add(scoreKey);
+            } else {
+                scores.put(scoreKey, score);
+            }
+        }
+        if (!missingKeys.isEmpty()) {
+            scores.putAll(scoreCache.getScores(missingKeys));
+        }
+        return scores;
+    }
+
+    /**
+     * The new scores are written to the cache in the background, in pipelined batches of {@link #WRITE_BATCH_SIZE}
+     * scores, so that the ranking does not wait for the cache backend
+     */
+    private void bufferScores(final Map<String, Double> scores) {
+        pendingScores.putAll(scores);
+        if ((pendingScores.size() >= WRITE_BATCH_SIZE) && flushScheduled.compareAndSet(false, true)) {
+            scoreWriter.execute(() -> {
+                flushScheduled.set(false);
+                flushScores();
+            });
+        }
+    }
+
+    private void flushScores() {
+        final Map<String, Double> batch = new HashMap<>();
+        final Iterator<Map.Entry<String, Double>> iterator = pendingScores.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Double> score = iterator.next();
+            batch.put(score.getKey(), score.getValue());
+            iterator.remove();
         }
-        cuiTermList.sort((o1, o2) -> Double.compare(o2.getScore(), o1.getScore()));
+        scoreCache.putScores(batch);
+    }
+
+    public long getComputedScoreCount() {
+        return computedCount.sum();
+    }
+
+    /**
+     * @return The number of scores computed per second by a worker thread, excluding the cache accesses and the
+     * scheduling of the tasks
+     */
+    public double getScoresPerSecond() {
+        final long nanos = scoringNanos.sum();
+        return (nanos == 0L) ? 0d : (computedCount.sum() * 1.0e9d) / nanos;
+    }
+
+    private String scoreKey(final CUITerm cuiTerm, final String conceptDescription) {
+        return scoreCache.key(cuiTerm.getTerm(), conceptDescription);
     }
 
     @Override
     public void release() {
         threadPool.shutdownNow();
+        scoreWriter.shutdown();
+        try {
+            if (!scoreWriter.awaitTermination(WRITER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.error("Timeout while writing the scores to the cache");
+            }
+        } catch (final InterruptedException e) {
+            logger.error(e.getLocalizedMessage());
+        }
+        flushScores();
+        logger.info("Similarity ranker: {} scores computed ({} scores/s per worker), {} read from the cache",
+                computedCount.sum(), String.format("%.0f", getScoresPerSecond()), cachedCount.sum());
+        scoreCache.logStatistics();
+        signatureCache.logStatistics();
     }
 
-    private static final class IntermediateScorer implements Callable<CUITerm> {
+    private static final class Candidate {
         private final CUITerm cuiTerm;
+        private final int position;
+
+        private Candidate(final CUITerm cuiTerm, final int position) {
+            this.cuiTerm = cuiTerm;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Bounded min-heap of the k best candidates; among equal scores the first candidate of the list ranks first, as
+     * with a stable sort of the whole list
+     */
+    private static final class TopTerms {
+        private static final Comparator<Candidate> WORST_FIRST = Comparator
+                .comparingDouble((Candidate candidate) -> candidate.cuiTerm.getScore())
+                .thenComparing(Comparator.comparingInt((Candidate candidate) -> candidate.position).reversed());
+
+        private final int k;
+        private final PriorityQueue<Candidate> heap;
+
+        private TopTerms(final int k) {
+            this.k = k;
+            heap = new PriorityQueue<>(Math.max(1, k), WORST_FIRST);
+        }
+
+        private void offer(final Candidate candidate) {
+            if (heap.size() < k) {
+                heap.add(candidate);
+            } else if (!heap.isEmpty() && (WORST_FIRST.compare(candidate, heap.peek()) > 0)) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+
+        private List<CUITerm> toList() {
+            final List<Candidate> best = new ArrayList<>(heap);
+            best.sort(WORST_FIRST.reversed());
+            final List<CUITerm> terms = new ArrayList<>(best.size());
+            for (final Candidate candidate : best) {
+                terms.add(candidate.cuiTerm);
+            }
+            return terms;
+        }
+    }
+
+    /**
+     * Scores a batch of candidates with the measure of the worker thread
+     */
+    private static final class ScoringBatch implements Callable<Long> {
+        private final List<Candidate> candidates;
         private final SemanticSignature ontologyLabel;
-        private final SimilarityMeasure similarityMeasure;
 
 
-        private IntermediateScorer(final CUITerm cuiTerm, final SemanticSignature ontologyLabel, final SimilarityMeasure similarityMeasure) {
-            this.cuiTerm = cuiTerm;
+        private ScoringBatch(final List<Candidate> candidates, final SemanticSignature ontologyLabel) {
+            this.candidates = candidates;
             this.ontologyLabel = ontologyLabel;
-            this.similarityMeasure = similarityMeasure;
         }
 
+        /**
+         * @return The time spent scoring, in nanoseconds
+         */
         @Override
-        public CUITerm call() {
-            final double score = similarityMeasure.compute(cuiTerm.getSemanticSignature(), ontologyLabel);
-            cuiTerm.setScore(score);
-            return cuiTerm;
+        public Long call() {
+            final long start = System.nanoTime();
+            final SimilarityMeasure measure = similarityMeasure.get();
+            for (final Candidate candidate : candidates) {
+                final CUITerm cuiTerm = candidate.cuiTerm;
+                cuiTerm.setScore(measure.compute(cuiTerm.getSemanticSignature(), ontologyLabel));
+            }
+            return System.nanoTime() - start;
         }
     }
 
@@ -0,0 +1,78 @@
+package org.sifrproject.ontology.prefix;
+
+
+import org.sifrproject.utils.cache.CompactReader;
+import org.sifrproject.utils.cache.CompactWriter;
+
+import java.util.*;
+
+/**
+ * Dictionary of namespace URIs used to encode URIs compactly in the cache: a URI is written as the index of its longest
+ * namespace in the table (0 when none matches) followed by the rest of the URI. The namespaces are sorted, the same
+ * namespaces thus always give the same table, identified by {@link #getFingerprint()}.
+ */
+public final class UriPrefixTable {
+
+    private static final int NO_PREFIX = 0;
+
+    private final String[] namespaces;
+    private final String fingerprint;
+
+    /**
+     * @param namespaces The namespace URIs of the table, e.g. the values of a prefix map
+     */
+    public UriPrefixTable(final Collection<String> namespaces) {
+        final SortedSet<String> sortedNamespaces = new TreeSet<>();
+        for (final String namespace : namespaces) {
+            if ((namespace != null) && !namespace.isEmpty()) {
+                sortedNamespaces.add(namespace);
+            }
+        }
+        this.namespaces = sortedNamespaces.toArray(new String[sortedNamespaces.size()]);
+        fingerprint = Integer.toHexString(Arrays.hashCode(this.namespaces));
+    }
+
+    /**
+     * @param prefixMap Additional prefixes, e.g. those declared by a model
+     * @return The table of the system prefixes (see {@link OntologyPrefix}) and of the additional prefixes
+     */
+    public static UriPrefixTable withSystemPrefixes(final Map<String, String> prefixMap) {
+        final Collection<String> namespaces = new ArrayList<>(prefixMap.values());
+        for (final String prefix : OntologyPrefix.getPrefixes()) {
+            namespaces.add(OntologyPrefix.getPrefixURI(prefix));
+        }
+        return new UriPrefixTable(namespaces);
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return The index of the longest namespace of the table that prefixes the URI, plus one, or 0 if none does (the
+     * tables hold a few dozen namespaces, a scan is cheaper than hashing the candidate prefixes of the URI)
+     */
+    private int prefixIndex(final String uri) {
+        int index = NO_PREFIX;
+        int length = 0;
+        for (int i = 0; i < namespaces.length; i++) {
+            if ((namespaces[i].length() > length) && uri.startsWith(namespaces[i])) {
+                index = i + 1;
+                length = namespaces[i].length();
+            }
+        }
+        return index;
+    }
+
+    public void write(final CompactWriter writer, final String uri) {
+        final int index = prefixIndex(uri);
+        writer.writeVarInt(index);
+        writer.writeString((index == NO_PREFIX) ? uri : uri.substring(namespaces[index - 1].length()));
+    }
+
+    public String read(final CompactReader reader) {
+        final int index = reader.readVarInt();
+        final String rest = reader.readString();
+        return (index == NO_PREFIX) ? rest : namespaces[index - 1].concat(rest);
+    }
+}
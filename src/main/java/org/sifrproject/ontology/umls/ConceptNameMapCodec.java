@@ -0,0 +1,61 @@
+package org.sifrproject.ontology.umls;
+
+
+import org.sifrproject.utils.cache.CacheCodec;
+import org.sifrproject.utils.cache.CompactReader;
+import org.sifrproject.utils.cache.CompactWriter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache encoding of the concept name maps (concept name to CUI), the CUIs being packed as in {@link IdentifierListCodec}
+ */
+public final class ConceptNameMapCodec implements CacheCodec<Map<String, String>> {
+
+    public static final ConceptNameMapCodec INSTANCE = new ConceptNameMapCodec();
+
+    private static final int PACKED = 0;
+    private static final int STRINGS = 1;
+
+    private ConceptNameMapCodec() {
+    }
+
+    @Override
+    public String getFormat() {
+        return "names1";
+    }
+
+    @Override
+    public byte[] encode(final Map<String, String> conceptNameMap) {
+        boolean packed = true;
+        for (final String cui : conceptNameMap.values()) {
+            packed &= UMLSIdentifiers.cuiToInt(cui) != UMLSIdentifiers.INVALID;
+        }
+        final CompactWriter writer = new CompactWriter();
+        writer.writeByte(packed ? PACKED : STRINGS).writeVarInt(conceptNameMap.size());
+        for (final Map.Entry<String, String> entry : conceptNameMap.entrySet()) {
+            writer.writeString(entry.getKey());
+            if (packed) {
+                writer.writeVarInt(UMLSIdentifiers.cuiToInt(entry.getValue()));
+            } else {
+                writer.writeString(entry.getValue());
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    @Override
+    public Map<String, String> decode(final byte[] bytes) {
+        final CompactReader reader = new CompactReader(bytes);
+        final boolean packed = reader.readByte() == PACKED;
+        final int count = reader.readVarInt();
+        final Map<String, String> conceptNameMap = new HashMap<>((count * 4) / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            final String name = reader.readString();
+            conceptNameMap.put(name, packed ? UMLSIdentifiers.intToCUI(reader.readVarInt()) : reader.readString());
+        }
+        return Collections.unmodifiableMap(conceptNameMap);
+    }
+}
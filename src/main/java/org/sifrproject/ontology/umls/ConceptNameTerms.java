@@ -0,0 +1,48 @@
+package org.sifrproject.ontology.umls;
+
+
+import org.sifrproject.ontology.matching.CUITerm;
+import org.sifrproject.ontology.matching.CUITermImpl;
+import org.sifrproject.ontology.matching.SemanticSignatureCache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conversion of the concept names retrieved from UMLS to CUI terms, shared by the UMLS delegates
+ */
+final class ConceptNameTerms {
+
+    private ConceptNameTerms() {
+    }
+
+    /**
+     * The signatures come from {@link SemanticSignatureCache#DEFAULT}, each new term gets its own copy since the
+     * signature of a term is extended with the other names of its CUI.
+     *
+     * @param cuiTerms       The list to which the terms are added, the names of a CUI already in the list are appended
+     *                       to the signature of its term
+     * @param conceptNameMap The CUI of each concept name
+     * @param languageCode   The language of the names
+     */
+    static void populateTermList(final List<CUITerm> cuiTerms, final Map<String, String> conceptNameMap, final UMLSLanguageCode languageCode) {
+        final Map<String, CUITerm> termsByCUI = new HashMap<>();
+        for (final CUITerm cuiTerm : cuiTerms) {
+            if (cuiTerm.getLanguageCode() == languageCode) {
+                termsByCUI.put(cuiTerm.getCUI(), cuiTerm);
+            }
+        }
+        for (final Map.Entry<String, String> entry : conceptNameMap.entrySet()) {
+            final CUITerm other = termsByCUI.get(entry.getValue());
+            if (other == null) {
+                final CUITerm cuiTerm = new CUITermImpl(entry.getValue(), entry.getKey(), languageCode,
+                        SemanticSignatureCache.DEFAULT.createSignature(entry.getKey(), languageCode));
+                termsByCUI.put(entry.getValue(), cuiTerm);
+                cuiTerms.add(cuiTerm);
+            } else {
+                other.appendToSignature(entry.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.sifrproject.ontology.umls;
+
+
+import org.sifrproject.utils.collections.IntSet;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Tokenization of the concept names for the inverted name index of the UMLS delegates, and ranking of the candidate
+ * CUIs of a text from the postings of its tokens. The index and the queries must use the same tokenization.
+ */
+final class ConceptNameTokens {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final int MINIMUM_TOKEN_LENGTH = 2;
+    /**
+     * Maximum fraction of the names in which a token may occur for its postings to be used in the ranking
+     */
+    static final double MAX_DOCUMENT_FREQUENCY = 0.02d;
+
+    private ConceptNameTokens() {
+    }
+
+    /**
+     * @return The distinct normalized tokens of the text: lower case, without diacritics, split on everything that is
+     * neither a letter nor a digit
+     */
+    static Set<String> tokenize(final String text) {
+        final Set<String> tokens = new LinkedHashSet<>();
+        final String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (final String token : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (token.length() >= MINIMUM_TOKEN_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Select the tokens whose postings are merged to rank the candidates: the tokens of more than
+     * {@link #MAX_DOCUMENT_FREQUENCY} of the names are function words (de, la, du, of...) or too common to discriminate
+     * the candidates, they are skipped unless all the tokens of the text are that common, the rarest one is then kept
+     *
+     * @param documentFrequencies The number of CUIs of each token of the text
+     * @param documentCount       The number of names in the index
+     * @return For each token, whether its postings are used
+     */
+    static boolean[] selectTokens(final int[] documentFrequencies, final int documentCount) {
+        final double maxDocumentFrequency = MAX_DOCUMENT_FREQUENCY * documentCount;
+        final boolean[] selected = new boolean[documentFrequencies.length];
+        boolean anySelected = false;
+        int rarest = -1;
+        for (int i = 0; i < documentFrequencies.length; i++) {
+            selected[i] = (documentFrequencies[i] > 0) && (documentFrequencies[i] <= maxDocumentFrequency);
+            anySelected |= selected[i];
+            if ((documentFrequencies[i] > 0) && ((rarest < 0) || (documentFrequencies[i] < documentFrequencies[rarest]))) {
+                rarest = i;
+            }
+        }
+        if (!anySelected && (rarest >= 0)) {
+            selected[rarest] = true;
+        }
+        return selected;
+    }
+
+    /**
+     * Rank the CUIs by the sum of the inverse document frequencies of the tokens they share with the text, so that a
+     * rare token weighs more than a common one. The postings of the tokens skipped by
+     * {@link #selectTokens(int[], int)} are ignored; the others are merged into sorted arrays of CUIs and scores.
+     *
+     * @param postings      The CUIs of each token of the text
+     * @param documentCount The number of names in the index
+     * @param maxCandidates The maximum number of CUIs returned
+     * @return The best ranked CUIs, by decreasing score then increasing CUI
+     */
+    static IntSet rankCandidates(final List<IntSet> postings, final int documentCount, final int maxCandidates) {
+        final int[] documentFrequencies = new int[postings.size()];
+        for (int i = 0; i < documentFrequencies.length; i++) {
+            documentFrequencies[i] = postings.get(i).size();
+        }
+        final boolean[] selected = selectTokens(documentFrequencies, documentCount);
+
+        int[] cuis = new int[0];
+        double[] scores = new double[0];
+        for (int i = 0; i < selected.length; i++) {
+            if (selected[i]) {
+                final IntSet tokenCUIs = postings.get(i);
+                final double weight = Math.log(1d + (documentCount / (double) tokenCUIs.size()));
+                final int[] mergedCUIs = new int[cuis.length + tokenCUIs.size()];
+                final double[] mergedScores = new double[mergedCUIs.length];
+                int merged = 0;
+                int current = 0;
+                int token = 0;
+                while ((current < cuis.length) || (token < tokenCUIs.size())) {
+                    final int cui = (token == tokenCUIs.size()) ? Integer.MAX_VALUE : tokenCUIs.get(token);
+                    if ((current < cuis.length) && (cuis[current] <= cui)) {
+                        mergedCUIs[merged] = cuis[current];
+                        mergedScores[merged] = scores[current];
+                        if ((cuis[current] == cui) && (token < tokenCUIs.size())) {
+                            mergedScores[merged] += weight;
+                            token++;
+                        }
+                        current++;
+                    } else {
+                        mergedCUIs[merged] = cui;
+                        mergedScores[merged] = weight;
+                        token++;
+                    }
+                    merged++;
+                }
+                cuis = Arrays.copyOf(mergedCUIs, merged);
+                scores = Arrays.copyOf(mergedScores, merged);
+            }
+        }
+        return best(cuis, scores, maxCandidates);
+    }
+
+    /**
+     * @param cuis   The CUIs, in ascending order
+     * @param scores The score of each CUI
+     * @return The CUIs of the maxCandidates highest scores, the lowest CUIs first among equal scores
+     */
+    private static IntSet best(final int[] cuis, final double[] scores, final int maxCandidates) {
+        final IntSet candidates = new IntSet();
+        if (cuis.length <= maxCandidates) {
+            candidates.addAll(cuis, cuis.length);
+        } else if (maxCandidates > 0) {
+            final double[] sortedScores = scores.clone();
+            Arrays.sort(sortedScores);
+            final double threshold = sortedScores[sortedScores.length - maxCandidates];
+            final int[] bestCUIs = new int[maxCandidates];
+            int count = 0;
+            for (int i = 0; i < cuis.length; i++) {
+                if (scores[i] > threshold) {
+                    bestCUIs[count] = cuis[i];
+                    count++;
+                }
+            }
+            for (int i = 0; (i < cuis.length) && (count < maxCandidates); i++) {
+                if (scores[i] == threshold) {
+                    bestCUIs[count] = cuis[i];
+                    count++;
+                }
+            }
+            candidates.addAll(bestCUIs, count);
+        }
+        return candidates;
+    }
+}
@@ -0,0 +1,76 @@
+package org.sifrproject.ontology.umls;
+
+
+import org.sifrproject.utils.collections.IntSet;
+
+import java.util.*;
+
+/**
+ * In-memory inverted index from the tokens of the concept names of a language to their CUIs, for the UMLS delegates
+ * without a prebuilt token index. The postings are frozen, the index can be shared between threads once built.
+ */
+final class ConceptTokenIndex {
+
+    private static final IntSet NO_CUIS = new IntSet().freeze();
+
+    private final Map<String, IntSet> postings;
+    private final int documentCount;
+
+    private ConceptTokenIndex(final Map<String, IntSet> postings, final int documentCount) {
+        this.postings = postings;
+        this.documentCount = documentCount;
+    }
+
+    /**
+     * @see UMLSDelegate#getCandidateCUIs(String, UMLSLanguageCode, int)
+     */
+    IntSet getCandidateCUIs(final String text, final int maxCandidates) {
+        final List<IntSet> textPostings = new ArrayList<>();
+        for (final String token : ConceptNameTokens.tokenize(text)) {
+            textPostings.add(postings.getOrDefault(token, NO_CUIS));
+        }
+        return ConceptNameTokens.rankCandidates(textPostings, documentCount, maxCandidates);
+    }
+
+    int size() {
+        return postings.size();
+    }
+
+    static final class Builder {
+        private static final int INITIAL_POSTINGS_CAPACITY = 4;
+
+        private final Map<String, int[]> postings = new HashMap<>();
+        private final Map<String, Integer> sizes = new HashMap<>();
+        private int documentCount;
+
+        /**
+         * Add the tokens of a concept name, the CUIs of a token can be added in any order and more than once
+         */
+        void add(final int cui, final String name) {
+            for (final String token : ConceptNameTokens.tokenize(name)) {
+                final int size = sizes.getOrDefault(token, 0);
+                int[] cuis = postings.get(token);
+                if (cuis == null) {
+                    cuis = new int[INITIAL_POSTINGS_CAPACITY];
+                    postings.put(token, cuis);
+                } else if (size == cuis.length) {
+                    cuis = Arrays.copyOf(cuis, size * 2);
+                    postings.put(token, cuis);
+                }
+                cuis[size] = cui;
+                sizes.put(token, size + 1);
+            }
+            documentCount++;
+        }
+
+        ConceptTokenIndex build() {
+            final Map<String, IntSet> frozenPostings = new HashMap<>(postings.size() * 2);
+            for (final Map.Entry<String, int[]> entry : postings.entrySet()) {
+                final IntSet cuis = new IntSet();
+                cuis.addAll(entry.getValue(), sizes.get(entry.getKey()));
+                frozenPostings.put(entry.getKey(), cuis.freeze());
+            }
+            return new ConceptTokenIndex(frozenPostings, documentCount);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.sifrproject.ontology.umls;
+
+
+import org.sifrproject.ontology.matching.CUITerm;
+import org.sifrproject.utils.collections.IntObjectMap;
+import org.sifrproject.utils.collections.IntSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * UMLS delegate answering the lookups offline from a local index built by {@link EmbeddedUMLSIndexBuilder}. The index
+ * files are memory-mapped and searched by binary search, lookups involve neither a database round trip nor the cache.
+ * The concept name and token files of a language are mapped the first time the language is requested.
+ */
+public class EmbeddedUMLSDelegate implements UMLSDelegate {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedUMLSDelegate.class);
+
+    static final String SEMANTIC_TYPES_INDEX = "semantic_types.idx";
+    static final String CODES_INDEX = "codes.idx";
+    static final String CODES_STRINGS = "codes.str";
+    private static final String NAMES_PREFIX = "names_";
+    private static final String TOKENS_PREFIX = "tokens_";
+
+    /**
+     * Language field of the code records whose language is not a {@link UMLSLanguageCode}
+     */
+    static final int UNSUPPORTED_LANGUAGE = -1;
+
+    private static final int SEMANTIC_TYPE_CUI = 0;
+    private static final int SEMANTIC_TYPE_TUI = 1;
+    private static final int SEMANTIC_TYPE_FIELDS = 2;
+
+    private static final int CODE_OFFSET = 0;
+    private static final int CODE_LENGTH = 1;
+    private static final int CODE_LANGUAGE = 2;
+    private static final int CODE_CUI = 3;
+    private static final int CODE_FIELDS = 4;
+
+    private static final int NAME_CUI = 0;
+    private static final int NAME_OFFSET = 1;
+    private static final int NAME_LENGTH = 2;
+    private static final int NAME_FIELDS = 3;
+
+    private final Path indexDirectory;
+    private final MappedRecordFile semanticTypes;
+    private final MappedRecordFile codes;
+    private final ConcurrentMap<UMLSLanguageCode, MappedRecordFile> names = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UMLSLanguageCode, MappedRecordFile> tokens = new ConcurrentHashMap<>();
+
+    public EmbeddedUMLSDelegate(final Path indexDirectory) throws IOException {
+        logger.info("Opening embedded UMLS index in {}...", indexDirectory);
+        this.indexDirectory = indexDirectory;
+        semanticTypes = new MappedRecordFile(indexDirectory.resolve(SEMANTIC_TYPES_INDEX), null, SEMANTIC_TYPE_FIELDS);
+        codes = new MappedRecordFile(indexDirectory.resolve(CODES_INDEX), indexDirectory.resolve(CODES_STRINGS), CODE_FIELDS);
+    }
+
+    static String namesIndex(final UMLSLanguageCode languageCode) {
+        return NAMES_PREFIX + languageCode.getLanguageCode() + ".idx";
+    }
+
+    static String namesStrings(final UMLSLanguageCode languageCode) {
+        return NAMES_PREFIX + languageCode.getLanguageCode() + ".str";
+    }
+
+    static String tokensIndex(final UMLSLanguageCode languageCode) {
+        return TOKENS_PREFIX + languageCode.getLanguageCode() + ".idx";
+    }
+
+    static String tokensStrings(final UMLSLanguageCode languageCode) {
+        return TOKENS_PREFIX + languageCode.getLanguageCode() + ".str";
+    }
+
+    private MappedRecordFile getTokens(final UMLSLanguageCode languageCode) {
+        return tokens.computeIfAbsent(languageCode, language -> {
+            try {
+                return new MappedRecordFile(indexDirectory.resolve(tokensIndex(language)), indexDirectory.resolve(tokensStrings(language)), CODE_FIELDS);
+            } catch (final IOException e) {
+                throw new UncheckedIOException("The embedded UMLS index has no token index for " + language + ", it must be rebuilt", e);
+            }
+        });
+    }
+
+    private MappedRecordFile getNames(final UMLSLanguageCode languageCode) {
+        return names.computeIfAbsent(languageCode, language -> {
+            try {
+                return new MappedRecordFile(indexDirectory.resolve(namesIndex(language)), indexDirectory.resolve(namesStrings(language)), NAME_FIELDS);
+            } catch (final IOException e) {
+                throw new UncheckedIOException("The embedded UMLS index has no concept names for " + language, e);
+            }
+        });
+    }
+
+    @Override
+    public IntSet getTUIsForCUIs(final IntSet cuis) {
+        final IntSet tuis = new IntSet();
+        for (int i = 0; i < cuis.size(); i++) {
+            tuis.addAll(findTUIs(cuis.get(i)));
+        }
+        return tuis;
+    }
+
+    @Override
+    public IntObjectMap<IntSet> getTUIsPerCUI(final IntSet cuis) {
+        final IntObjectMap<IntSet> tuis = new IntObjectMap<>(cuis.size());
+        for (int i = 0; i < cuis.size(); i++) {
+            tuis.put(cuis.get(i), findTUIs(cuis.get(i)));
+        }
+        return tuis;
+    }
+
+    private IntSet findTUIs(final int cui) {
+        final IntSet tuis = new IntSet();
+        int record = semanticTypes.lowerBound(SEMANTIC_TYPE_CUI, cui);
+        while ((record < semanticTypes.size()) && (semanticTypes.getInt(record, SEMANTIC_TYPE_CUI) == cui)) {
+            tuis.add(semanticTypes.getInt(record, SEMANTIC_TYPE_TUI));
+            record++;
+        }
+        return tuis;
+    }
+
+    @Override
+    public Map<String, IntSet> getUMLSCUIsForCodes(final Collection<String> codes) {
+        final Map<String, IntSet> cuis = new HashMap<>();
+        for (final String code : codes) {
+            if (code != null) {
+                cuis.put(code, findCUIs(code, null));
+            }
+        }
+        return cuis;
+    }
+
+    @Override
+    public IntSet getUMLSCUIs(final String code, final UMLSLanguageCode languageCode) {
+        return findCUIs(code, languageCode);
+    }
+
+    @Override
+    public IntSet getUMLSCUIs(final String code) {
+        return findCUIs(code, null);
+    }
+
+    /**
+     * @param code         The code, no CUI is found for a null code
+     * @param languageCode The language of the code entries, null for all the languages
+     */
+    private IntSet findCUIs(final String code, final UMLSLanguageCode languageCode) {
+        final IntSet cuis = new IntSet();
+        if (code == null) {
+            return cuis;
+        }
+        final byte[] key = code.getBytes(StandardCharsets.UTF_8);
+        int record = codes.lowerBound(CODE_OFFSET, CODE_LENGTH, key);
+        while ((record < codes.size()) && (codes.compareString(record, CODE_OFFSET, CODE_LENGTH, key) == 0)) {
+            if ((languageCode == null) || (codes.getInt(record, CODE_LANGUAGE) == languageCode.ordinal())) {
+                cuis.add(codes.getInt(record, CODE_CUI));
+            }
+            record++;
+        }
+        return cuis;
+    }
+
+    @Override
+    public List<CUITerm> getCUIConceptNameMap(final UMLSLanguageCode languageCode) {
+        return getCUIConceptNameMap(languageCode, null);
+    }
+
+    /**
+     * @param cuis The CUIs whose names are retrieved, null for all the concept names of the language
+     */
+    @Override
+    public List<CUITerm> getCUIConceptNameMap(final UMLSLanguageCode languageCode, final IntSet cuis) {
+        final MappedRecordFile languageNames = getNames(languageCode);
+        final Map<String, String> conceptNameMap = new LinkedHashMap<>();
+        if (cuis == null) {
+            for (int record = 0; record < languageNames.size(); record++) {
+                putConceptName(conceptNameMap, languageNames, record);
+            }
+        } else {
+            for (int i = 0; i < cuis.size(); i++) {
+                final int cui = cuis.get(i);
+                int record = languageNames.lowerBound(NAME_CUI, cui);
+                while ((record < languageNames.size()) && (languageNames.getInt(record, NAME_CUI) == cui)) {
+                    putConceptName(conceptNameMap, languageNames, record);
+                    record++;
+                }
+            }
+        }
+        final List<CUITerm> cuiTerms = new ArrayList<>();
+        ConceptNameTerms.populateTermList(cuiTerms, conceptNameMap, languageCode);
+        return cuiTerms;
+    }
+
+    @Override
+    public IntSet getCandidateCUIs(final String text, final UMLSLanguageCode languageCode, final int maxCandidates) {
+        final MappedRecordFile languageTokens = getTokens(languageCode);
+        final int documentCount = getNames(languageCode).size();
+        final Set<String> tokens = ConceptNameTokens.tokenize(text);
+        final int[] starts = new int[tokens.size()];
+        final int[] documentFrequencies = new int[tokens.size()];
+        int tokenIndex = 0;
+        for (final String token : tokens) {
+            final byte[] key = token.getBytes(StandardCharsets.UTF_8);
+            starts[tokenIndex] = languageTokens.lowerBound(CODE_OFFSET, CODE_LENGTH, key);
+            documentFrequencies[tokenIndex] = languageTokens.upperBound(CODE_OFFSET, CODE_LENGTH, key) - starts[tokenIndex];
+            tokenIndex++;
+        }
+
+        //The postings of the common tokens are skipped without being read
+        final boolean[] selected = ConceptNameTokens.selectTokens(documentFrequencies, documentCount);
+        final List<IntSet> postings = new ArrayList<>();
+        for (int i = 0; i < selected.length; i++) {
+            if (selected[i]) {
+                final int[] cuis = new int[documentFrequencies[i]];
+                for (int j = 0; j < cuis.length; j++) {
+                    cuis[j] = languageTokens.getInt(starts[i] + j, CODE_CUI);
+                }
+                final IntSet tokenCUIs = new IntSet();
+                tokenCUIs.addAll(cuis, cuis.length);
+                postings.add(tokenCUIs);
+            }
+        }
+        return ConceptNameTokens.rankCandidates(postings, documentCount, maxCandidates);
+    }
+
+    private static void putConceptName(final Map<String, String> conceptNameMap, final MappedRecordFile languageNames, final int record) {
+        conceptNameMap.put(languageNames.getString(record, NAME_OFFSET, NAME_LENGTH),
+                UMLSIdentifiers.intToCUI(languageNames.getInt(record, NAME_CUI)));
+    }
+}
@@ -0,0 +1,321 @@
+package org.sifrproject.ontology.umls;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Import command building the index of the {@link EmbeddedUMLSDelegate} from the MRCONSO.RRF and MRSTY.RRF files of
+ * a UMLS distribution (META directory). The whole content of the indexes is sorted in memory, the JVM heap must be
+ * sized accordingly (a few GB for the full Metathesaurus).
+ * <p>
+ * The index directory contains:
+ * <ul>
+ * <li>semantic_types.idx: (CUI, TUI) records sorted by CUI</li>
+ * <li>codes.idx/codes.str: (code offset, code length, language, CUI) records sorted by code, for all the languages
+ * (the language is the ordinal of the {@link UMLSLanguageCode}, the index must be rebuilt if the enum changes)</li>
+ * <li>names_LAT.idx/names_LAT.str: (CUI, name offset, name length) records sorted by CUI, for each indexed language</li>
+ * <li>tokens_LAT.idx/tokens_LAT.str: inverted index of the concept names, with the same layout as the codes (the
+ * normalized tokens of the names take the place of the codes), for each indexed language</li>
+ * </ul>
+ */
+public final class EmbeddedUMLSIndexBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedUMLSIndexBuilder.class);
+
+    private static final Pattern FIELD_SEPARATOR = Pattern.compile("\\|");
+    private static final String MRCONSO = "MRCONSO.RRF";
+    private static final String MRSTY = "MRSTY.RRF";
+    private static final int MRCONSO_CUI = 0;
+    private static final int MRCONSO_LAT = 1;
+    private static final int MRCONSO_CODE = 13;
+    private static final int MRCONSO_STR = 14;
+    private static final int MRSTY_CUI = 0;
+    private static final int MRSTY_TUI = 1;
+    private static final int INITIAL_CAPACITY = 1 << 20;
+
+    private static final Comparator<byte[]> UTF8_ORDER = (first, second) -> {
+        final int commonLength = Math.min(first.length, second.length);
+        int comparison = 0;
+        for (int i = 0; (i < commonLength) && (comparison == 0); i++) {
+            comparison = Integer.compare(first[i] & 0xFF, second[i] & 0xFF);
+        }
+        return (comparison == 0) ? Integer.compare(first.length, second.length) : comparison;
+    };
+
+    private final Path metaDirectory;
+    private final Path indexDirectory;
+    private final Set<UMLSLanguageCode> languages;
+
+    /**
+     * @param metaDirectory  The META directory of the UMLS distribution
+     * @param indexDirectory The directory where the index is written
+     * @param languages      The languages for which the concept names are indexed, all supported languages if empty
+     */
+    public EmbeddedUMLSIndexBuilder(final Path metaDirectory, final Path indexDirectory, final Collection<UMLSLanguageCode> languages) {
+        this.metaDirectory = metaDirectory;
+        this.indexDirectory = indexDirectory;
+        this.languages = languages.isEmpty() ? EnumSet.allOf(UMLSLanguageCode.class) : EnumSet.copyOf(languages);
+    }
+
+    public void build() throws IOException {
+        Files.createDirectories(indexDirectory);
+        buildSemanticTypeIndex();
+        buildConceptIndexes();
+        logger.info("UMLS index written to {}", indexDirectory);
+    }
+
+    private void buildSemanticTypeIndex() throws IOException {
+        logger.info("Indexing semantic types from {}...", MRSTY);
+        long[] pairs = new long[INITIAL_CAPACITY];
+        int size = 0;
+        try (BufferedReader reader = Files.newBufferedReader(metaDirectory.resolve(MRSTY), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                final String[] fields = FIELD_SEPARATOR.split(line);
+                final int cui = UMLSIdentifiers.cuiToInt(fields[MRSTY_CUI]);
+                final int tui = UMLSIdentifiers.tuiToInt(fields[MRSTY_TUI]);
+                if ((cui != UMLSIdentifiers.INVALID) && (tui != UMLSIdentifiers.INVALID)) {
+                    if (size == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, size * 2);
+                    }
+                    pairs[size] = ((long) cui << Integer.SIZE) | tui;
+                    size++;
+                }
+                line = reader.readLine();
+            }
+        }
+        Arrays.sort(pairs, 0, size);
+
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if ((i == 0) || (pairs[i] != pairs[i - 1])) {
+                pairs[distinct] = pairs[i];
+                distinct++;
+            }
+        }
+        try (DataOutputStream output = openOutput(EmbeddedUMLSDelegate.SEMANTIC_TYPES_INDEX)) {
+            writeHeader(output, distinct);
+            for (int i = 0; i < distinct; i++) {
+                output.writeInt((int) (pairs[i] >>> Integer.SIZE));
+                output.writeInt((int) pairs[i]);
+            }
+        }
+        logger.info("\t{} semantic type assignments", distinct);
+    }
+
+    @SuppressWarnings("OverlyLongMethod")
+    private void buildConceptIndexes() throws IOException {
+        logger.info("Indexing codes and concept names from {}...", MRCONSO);
+        final List<CodeEntry> codes = new ArrayList<>(INITIAL_CAPACITY);
+        final Map<UMLSLanguageCode, List<NameEntry>> names = new EnumMap<>(UMLSLanguageCode.class);
+        for (final UMLSLanguageCode language : languages) {
+            names.put(language, new ArrayList<>());
+        }
+        final Map<String, byte[]> codeBytes = new HashMap<>(INITIAL_CAPACITY);
+
+        try (BufferedReader reader = Files.newBufferedReader(metaDirectory.resolve(MRCONSO), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                final String[] fields = FIELD_SEPARATOR.split(line);
+                final int cui = UMLSIdentifiers.cuiToInt(fields[MRCONSO_CUI]);
+                if (cui != UMLSIdentifiers.INVALID) {
+                    final UMLSLanguageCode language = UMLSLanguageCode.fromLanguageCode(fields[MRCONSO_LAT]);
+                    final int languageOrdinal = (language == null) ? EmbeddedUMLSDelegate.UNSUPPORTED_LANGUAGE : language.ordinal();
+                    final String code = fields[MRCONSO_CODE];
+                    codes.add(new CodeEntry(codeBytes.computeIfAbsent(code, value -> value.getBytes(StandardCharsets.UTF_8)), languageOrdinal, cui));
+                    final List<NameEntry> languageNames = names.get(language);
+                    if (languageNames != null) {
+                        languageNames.add(new NameEntry(cui, fields[MRCONSO_STR].getBytes(StandardCharsets.UTF_8)));
+                    }
+                }
+                line = reader.readLine();
+            }
+        }
+        codeBytes.clear();
+
+        codes.sort(Comparator.comparing((CodeEntry entry) -> entry.code, UTF8_ORDER)
+                .thenComparingInt(entry -> entry.language)
+                .thenComparingInt(entry -> entry.cui));
+        final List<CodeEntry> distinctCodes = distinct(codes);
+        writeCodes(EmbeddedUMLSDelegate.CODES_INDEX, EmbeddedUMLSDelegate.CODES_STRINGS, distinctCodes);
+        logger.info("\t{} code entries", distinctCodes.size());
+
+        for (final Map.Entry<UMLSLanguageCode, List<NameEntry>> languageEntry : names.entrySet()) {
+            final List<NameEntry> languageNames = languageEntry.getValue();
+            languageNames.sort(Comparator.comparingInt((NameEntry entry) -> entry.cui)
+                    .thenComparing(entry -> entry.name, UTF8_ORDER));
+            final List<NameEntry> distinctNames = distinct(languageNames);
+            writeNames(languageEntry.getKey(), distinctNames);
+            logger.info("\t{} distinct {} concept names", distinctNames.size(), languageEntry.getKey());
+            final List<CodeEntry> tokens = tokenize(languageEntry.getKey(), distinctNames);
+            writeCodes(EmbeddedUMLSDelegate.tokensIndex(languageEntry.getKey()), EmbeddedUMLSDelegate.tokensStrings(languageEntry.getKey()), tokens);
+            logger.info("\t{} {} token postings", tokens.size(), languageEntry.getKey());
+        }
+    }
+
+    private static <T> List<T> distinct(final List<T> sortedEntries) {
+        final List<T> distinctEntries = new ArrayList<>(sortedEntries.size());
+        T previous = null;
+        for (final T entry : sortedEntries) {
+            if (!entry.equals(previous)) {
+                distinctEntries.add(entry);
+            }
+            previous = entry;
+        }
+        return distinctEntries;
+    }
+
+    /**
+     * @return The distinct (token, CUI) pairs of the names, sorted like the codes
+     */
+    private static List<CodeEntry> tokenize(final UMLSLanguageCode language, final List<NameEntry> names) {
+        final List<CodeEntry> tokens = new ArrayList<>(names.size() * 2);
+        final Map<String, byte[]> tokenBytes = new HashMap<>();
+        for (final NameEntry entry : names) {
+            for (final String token : ConceptNameTokens.tokenize(new String(entry.name, StandardCharsets.UTF_8))) {
+                tokens.add(new CodeEntry(tokenBytes.computeIfAbsent(token, value -> value.getBytes(StandardCharsets.UTF_8)), language.ordinal(), entry.cui));
+            }
+        }
+        tokens.sort(Comparator.comparing((CodeEntry entry) -> entry.code, UTF8_ORDER)
+                .thenComparingInt(entry -> entry.cui));
+        return distinct(tokens);
+    }
+
+    private void writeCodes(final String indexFile, final String stringFile, final List<CodeEntry> codes) throws IOException {
+        try (DataOutputStream records = openOutput(indexFile);
+             DataOutputStream strings = openOutput(stringFile)) {
+            writeHeader(records, codes.size());
+            long offset = 0;
+            byte[] previousCode = null;
+            long previousOffset = 0;
+            for (final CodeEntry entry : codes) {
+                //Consecutive entries of the same code share the same string
+                if (!Arrays.equals(entry.code, previousCode)) {
+                    strings.write(entry.code);
+                    previousOffset = offset;
+                    offset += entry.code.length;
+                    previousCode = entry.code;
+                }
+                records.writeInt(checkOffset(previousOffset));
+                records.writeInt(entry.code.length);
+                records.writeInt(entry.language);
+                records.writeInt(entry.cui);
+            }
+        }
+    }
+
+    private void writeNames(final UMLSLanguageCode language, final List<NameEntry> names) throws IOException {
+        try (DataOutputStream records = openOutput(EmbeddedUMLSDelegate.namesIndex(language));
+             DataOutputStream strings = openOutput(EmbeddedUMLSDelegate.namesStrings(language))) {
+            writeHeader(records, names.size());
+            long offset = 0;
+            for (final NameEntry entry : names) {
+                strings.write(entry.name);
+                records.writeInt(entry.cui);
+                records.writeInt(checkOffset(offset));
+                records.writeInt(entry.name.length);
+                offset += entry.name.length;
+            }
+        }
+    }
+
+    private static int checkOffset(final long offset) throws IOException {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("String pool exceeds 2GB, restrict the indexed languages");
+        }
+        return (int) offset;
+    }
+
+    @SuppressWarnings("IOResourceOpenedButNotSafelyClosed")
+    private DataOutputStream openOutput(final String fileName) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexDirectory.resolve(fileName)), 1 << 16));
+    }
+
+    private static void writeHeader(final DataOutput output, final int count) throws IOException {
+        output.writeInt(MappedRecordFile.MAGIC);
+        output.writeInt(MappedRecordFile.VERSION);
+        output.writeInt(count);
+    }
+
+    private static final class CodeEntry {
+        private final byte[] code;
+        private final int language;
+        private final int cui;
+
+        private CodeEntry(final byte[] code, final int language, final int cui) {
+            this.code = code;
+            this.language = language;
+            this.cui = cui;
+        }
+
+        @SuppressWarnings("all")
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CodeEntry)) return false;
+            final CodeEntry that = (CodeEntry) o;
+            return (language == that.language) && (cui == that.cui) && Arrays.equals(code, that.code);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * ((31 * Arrays.hashCode(code)) + language)) + cui;
+        }
+    }
+
+    private static final class NameEntry {
+        private final int cui;
+        private final byte[] name;
+
+        private NameEntry(final int cui, final byte[] name) {
+            this.cui = cui;
+            this.name = name;
+        }
+
+        @SuppressWarnings("all")
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof NameEntry)) return false;
+            final NameEntry that = (NameEntry) o;
+            return (cui == that.cui) && Arrays.equals(name, that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * cui) + Arrays.hashCode(name);
+        }
+    }
+
+    private static void syntax() {
+        logger.error("Syntax: command [UMLS META directory] [index directory] [optional comma-separated UMLS languages, e.g. FRE,ENG]");
+        System.exit(1);
+    }
+
+    public static void main(final String... args) throws IOException {
+        if (args.length < 2) {
+            syntax();
+        }
+        final Collection<UMLSLanguageCode> languages = new ArrayList<>();
+        if (args.length > 2) {
+            for (final String languageCode : args[2].split(",")) {
+                final UMLSLanguageCode language = UMLSLanguageCode.fromLanguageCode(languageCode.trim());
+                if (language == null) {
+                    logger.error("Unsupported UMLS language: {}", languageCode);
+                    syntax();
+                }
+                languages.add(language);
+            }
+        }
+        new EmbeddedUMLSIndexBuilder(Paths.get(args[0]), Paths.get(args[1]), languages).build();
+    }
+}
@@ -0,0 +1,53 @@
+package org.sifrproject.ontology.umls;
+
+
+import org.sifrproject.utils.cache.CacheCodec;
+import org.sifrproject.utils.cache.CompactReader;
+import org.sifrproject.utils.cache.CompactWriter;
+import org.sifrproject.utils.collections.IntSet;
+
+/**
+ * Cache encoding of sets of CUIs or TUIs (see {@link UMLSIdentifiers}): the identifiers are sorted, the set is thus
+ * packed as the varints of the differences between consecutive identifiers. The decoded sets are frozen.
+ */
+public final class IdentifierSetCodec implements CacheCodec<IntSet> {
+
+    public static final IdentifierSetCodec CUIS = new IdentifierSetCodec("cuis2");
+    public static final IdentifierSetCodec TUIS = new IdentifierSetCodec("tuis2");
+
+    private final String format;
+
+    private IdentifierSetCodec(final String format) {
+        this.format = format;
+    }
+
+    @Override
+    public String getFormat() {
+        return format;
+    }
+
+    @Override
+    public byte[] encode(final IntSet identifiers) {
+        final CompactWriter writer = new CompactWriter(1 + (identifiers.size() * 4));
+        writer.writeVarInt(identifiers.size());
+        int previous = 0;
+        for (int i = 0; i < identifiers.size(); i++) {
+            writer.writeVarInt(identifiers.get(i) - previous);
+            previous = identifiers.get(i);
+        }
+        return writer.toByteArray();
+    }
+
+    @Override
+    public IntSet decode(final byte[] bytes) {
+        final CompactReader reader = new CompactReader(bytes);
+        final int count = reader.readVarInt();
+        final int[] identifiers = new int[count];
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            identifiers[i] = previous + reader.readVarInt();
+            previous = identifiers[i];
+        }
+        return IntSet.fromSortedArray(identifiers).freeze();
+    }
+}
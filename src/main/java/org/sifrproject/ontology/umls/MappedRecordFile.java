@@ -0,0 +1,131 @@
+package org.sifrproject.ontology.umls;
+
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped file of fixed-size records made of ints, with an optional pool of UTF-8 strings referenced
+ * by (offset, length) fields of the records. Only absolute reads are used, instances can be shared between threads.
+ * <p>
+ * Record files start with a header made of a magic number, the format version and the number of records.
+ */
+final class MappedRecordFile {
+
+    static final int MAGIC = 0x554D4C53;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    private final MappedByteBuffer records;
+    private final MappedByteBuffer strings;
+    private final int recordSize;
+    private final int count;
+
+    MappedRecordFile(final Path recordFile, final Path stringFile, final int intsPerRecord) throws IOException {
+        records = map(recordFile);
+        strings = (stringFile == null) ? null : map(stringFile);
+        recordSize = intsPerRecord * Integer.BYTES;
+        if ((records.getInt(0) != MAGIC) || (records.getInt(Integer.BYTES) != VERSION)) {
+            throw new IOException("Not a UMLS index file (or unsupported version): " + recordFile);
+        }
+        count = records.getInt(2 * Integer.BYTES);
+    }
+
+    private static MappedByteBuffer map(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    int getInt(final int record, final int field) {
+        return records.getInt(HEADER_SIZE + (record * recordSize) + (field * Integer.BYTES));
+    }
+
+    /**
+     * @return The index of the first record whose int field is greater or equal to the value, the records must be
+     * sorted on the field
+     */
+    int lowerBound(final int field, final int value) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (getInt(middle, field) < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The index of the first record whose string is greater or equal to the key, the records must be sorted on
+     * the (UTF-8 bytes of the) string
+     */
+    int lowerBound(final int offsetField, final int lengthField, final byte[] key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (compareString(middle, offsetField, lengthField, key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The index of the first record whose string is greater than the key, see
+     * {@link #lowerBound(int, int, byte[])}
+     */
+    int upperBound(final int offsetField, final int lengthField, final byte[] key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (compareString(middle, offsetField, lengthField, key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compare the string of a record to a key, by unsigned lexicographical order of the UTF-8 bytes
+     */
+    int compareString(final int record, final int offsetField, final int lengthField, final byte[] key) {
+        final int offset = getInt(record, offsetField);
+        final int length = getInt(record, lengthField);
+        final int commonLength = Math.min(length, key.length);
+        int comparison = 0;
+        for (int i = 0; (i < commonLength) && (comparison == 0); i++) {
+            comparison = Integer.compare(strings.get(offset + i) & 0xFF, key[i] & 0xFF);
+        }
+        if (comparison == 0) {
+            comparison = Integer.compare(length, key.length);
+        }
+        return comparison;
+    }
+
+    String getString(final int record, final int offsetField, final int lengthField) {
+        final int offset = getInt(record, offsetField);
+        final byte[] bytes = new byte[getInt(record, lengthField)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = strings.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,20 +1,20 @@
 package org.sifrproject.ontology.umls;
 
 import org.apache.commons.dbcp2.BasicDataSource;
-import org.getalp.lexsema.similarity.signatures.DefaultSemanticSignatureFactory;
-import org.getalp.lexsema.similarity.signatures.SemanticSignature;
 import org.sifrproject.ontology.matching.CUITerm;
-import org.sifrproject.ontology.matching.CUITermImpl;
-import org.sifrproject.utils.EmptyResultsCache;
+import org.sifrproject.utils.cache.TwoTierCache;
+import org.sifrproject.utils.collections.IntObjectMap;
+import org.sifrproject.utils.collections.IntSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisCommands;
-import redis.clients.jedis.JedisPool;
 
 import java.sql.*;
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToIntFunction;
+
+import static org.sifrproject.configuration.ConfigurationConstants.*;
 
 
 public class SQLUMLSDelegate implements UMLSDelegate {
@@ -24,65 +24,226 @@ public class SQLUMLSDelegate implements UMLSDelegate {
     private static final String ERROR_MESSAGE_CANNOT_RUN_SQL_QUERY = "Cannot run SQL query: {}";
     @SuppressWarnings("resource")
     private final BasicDataSource dataSource = new BasicDataSource();
-    private final JedisPool jedisPool;
+    private final TwoTierCache cache;
     private static final Logger logger = LoggerFactory.getLogger(SQLUMLSDelegate.class);
     private static final String CUITUI_PREFIX = "cuitui_";
+    private static final String CACHE_NAMESPACE = "umls";
+
+    private static final long DEFAULT_POOL_MAX_WAIT_MILLIS = 60000L;
+    private static final int DEFAULT_POOL_MAX_OPEN_PREPARED_STATEMENTS = 100;
+
+    /**
+     * Maximum number of keys in the IN (...) list of a single batch query
+     */
+    private static final int IN_LIST_CHUNK_SIZE = 500;
+    private static final String TUIS_PER_CUI_QUERY = "SELECT DISTINCT CUI,TUI FROM MRSTY WHERE CUI IN (%s)";
+    private static final String CUIS_PER_CODE_QUERY = "SELECT DISTINCT CODE,CUI FROM MRCONSO WHERE CODE IN (%s)";
+    private static final String CONCEPT_NAMES_QUERY = "SELECT DISTINCT CUI,STR FROM MRCONSO WHERE LAT=?";
+    private static final int CONCEPT_NAMES_FETCH_SIZE = 10000;
+
+    /**
+     * Token indexes of the concept names, loaded from the database the first time a language is matched
+     */
+    private final ConcurrentMap<UMLSLanguageCode, ConceptTokenIndex> tokenIndexes = new ConcurrentHashMap<>();
 
 
-    public SQLUMLSDelegate(final String jdbcURI, final String sqlUser, final String sqlPass, final String sqlDB, final JedisPool jedisPool) {
+    public SQLUMLSDelegate(final String jdbcURI, final String sqlUser, final String sqlPass, final String sqlDB, final TwoTierCache cache) {
         logger.info("Initializing UMLS SQL Interface...");
         //dataSource.setDriverClassName("com.mysql.jdbc.Driver");
         dataSource.setUrl(jdbcURI);
         dataSource.setUsername(sqlUser);
         dataSource.setPassword(sqlPass);
         dataSource.setDefaultCatalog(sqlDB);
-        this.jedisPool = jedisPool;
+        //The UMLS results only depend on the UMLS release, i.e. on the database
+        this.cache = cache.inNamespace(CACHE_NAMESPACE, sqlDB);
+    }
+
+    /**
+     * Create a UMLS delegate from the configuration, the connection pool is sized after the number of workers unless
+     * configured otherwise
+     *
+     * @param properties The configuration properties
+     * @param cache      The cache of the query results
+     * @return The UMLS delegate
+     */
+    public static SQLUMLSDelegate fromProperties(final Properties properties, final TwoTierCache cache) {
+        final SQLUMLSDelegate umlsDelegate = new SQLUMLSDelegate(
+                properties.getProperty(CONFIG_UMLS_JDBC),
+                properties.getProperty(CONFIG_UMLS_USER),
+                properties.getProperty(CONFIG_UMLS_PASSWORD),
+                properties.getProperty(CONFIG_UMLS_DB),
+                cache);
+
+        int poolSize = Integer.valueOf(properties.getProperty(CONFIG_UMLS_POOL_SIZE,
+                properties.getProperty(CONFIG_PARALLELISM, "0")));
+        if (poolSize <= 0) {
+            final Runtime runtime = Runtime.getRuntime();
+            poolSize = runtime.availableProcessors();
+        }
+        umlsDelegate.configurePool(
+                poolSize,
+                Long.valueOf(properties.getProperty(CONFIG_UMLS_POOL_MAX_WAIT_MILLIS, String.valueOf(DEFAULT_POOL_MAX_WAIT_MILLIS))),
+                Boolean.valueOf(properties.getProperty(CONFIG_UMLS_POOL_PREPARED_STATEMENTS, "true")),
+                Integer.valueOf(properties.getProperty(CONFIG_UMLS_POOL_MAX_OPEN_PREPARED_STATEMENTS, String.valueOf(DEFAULT_POOL_MAX_OPEN_PREPARED_STATEMENTS)))
+        );
+        return umlsDelegate;
+    }
+
+    /**
+     * Configure the SQL connection pool, all the queries run concurrently on the connections of the pool
+     *
+     * @param poolSize                  The maximum number of connections, all kept open when idle
+     * @param maxWaitMillis             The maximum time to wait for a free connection before failing, -1 to wait forever
+     * @param poolPreparedStatements    Whether the prepared statements are cached by each connection
+     * @param maxOpenPreparedStatements The maximum number of cached prepared statements per connection
+     */
+    public final void configurePool(final int poolSize, final long maxWaitMillis, final boolean poolPreparedStatements, final int maxOpenPreparedStatements) {
+        logger.info("UMLS connection pool: {} connections, statement caching {}", poolSize, poolPreparedStatements);
+        dataSource.setMaxTotal(poolSize);
+        dataSource.setMaxIdle(poolSize);
+        dataSource.setMaxWaitMillis(maxWaitMillis);
+        dataSource.setPoolPreparedStatements(poolPreparedStatements);
+        dataSource.setMaxOpenPreparedStatements(maxOpenPreparedStatements);
     }
 
-    @SuppressWarnings({"OverlyNestedMethod", "SynchronizeOnNonFinalField"})
     @Override
-    public Collection<String> getTUIsForCUIs(final Collection<String> cuis) {
-        final Collection<String> tuis = new ArrayList<>();
-
-        for (final String cui : cuis) {
-            try (Jedis jedis = jedisPool.getResource()) {
-                final String key = CUITUI_PREFIX + cui;
-                Collection<String> localTuis = jedis.lrange(key, 0, -1);
-                if (localTuis.isEmpty() && !EmptyResultsCache.isEmpty(key, jedis)) {
-                    synchronized (dataSource) {
-                        try (final Connection connection = dataSource.getConnection()) {
-                            try (final PreparedStatement statement = connection.prepareStatement("SELECT DISTINCT TUI FROM MRSTY WHERE CUI=?")) {
-                                statement.setString(1, cui);
-                                localTuis = fetchPushListPreparedStatement(statement, key, jedis);
-                            } catch (final SQLException e) {
-                                logger.error(ERROR_MESSAGE_CANNOT_RUN_SQL_QUERY, e.getLocalizedMessage());
-                            }
-                        } catch (final SQLException e) {
-                            logger.error(e.getLocalizedMessage());
+    public IntSet getTUIsForCUIs(final IntSet cuis) {
+        final IntSet tuis = new IntSet();
+        for (final IntSet cuiTUIs : batchLookup(cuiStrings(cuis), CUITUI_PREFIX, TUIS_PER_CUI_QUERY, IdentifierSetCodec.TUIS, UMLSIdentifiers::tuiToInt).values()) {
+            tuis.addAll(cuiTUIs);
+        }
+        return tuis;
+    }
+
+    @Override
+    public IntObjectMap<IntSet> getTUIsPerCUI(final IntSet cuis) {
+        final Map<String, IntSet> tuis = batchLookup(cuiStrings(cuis), CUITUI_PREFIX, TUIS_PER_CUI_QUERY, IdentifierSetCodec.TUIS, UMLSIdentifiers::tuiToInt);
+        final IntObjectMap<IntSet> tuisPerCUI = new IntObjectMap<>(tuis.size());
+        for (final Map.Entry<String, IntSet> entry : tuis.entrySet()) {
+            tuisPerCUI.put(UMLSIdentifiers.cuiToInt(entry.getKey()), entry.getValue());
+        }
+        return tuisPerCUI;
+    }
+
+    @Override
+    public Map<String, IntSet> getUMLSCUIsForCodes(final Collection<String> codes) {
+        return batchLookup(codes, CONCEPT_CODE_PREFIX, CUIS_PER_CODE_QUERY, IdentifierSetCodec.CUIS, UMLSIdentifiers::cuiToInt);
+    }
+
+    /**
+     * The CUIs are only converted to strings to be bound to the queries (and in the cache keys)
+     */
+    private static List<String> cuiStrings(final IntSet cuis) {
+        final List<String> strings = new ArrayList<>(cuis.size());
+        for (int i = 0; i < cuis.size(); i++) {
+            strings.add(UMLSIdentifiers.intToCUI(cuis.get(i)));
+        }
+        return strings;
+    }
+
+    /**
+     * Look up the values of many keys with a pipelined cache read, the keys that are not in the cache are resolved with
+     * chunked IN (...) queries whose rows are fanned out to the keys and cached
+     *
+     * @param keys          The keys to look up
+     * @param cachePrefix   The prefix of the cache entries of the keys
+     * @param queryTemplate The query, selecting the key in the first column and the value in the second column, with a
+     *                      %s placeholder for the IN list
+     * @param codec         The cache encoding of the values
+     * @param valueParser   The conversion of the values to their integer form, values that are not valid identifiers
+     *                      are skipped
+     * @return The values for each key, keys without values are mapped to an empty set (not cached when the query of
+     * their chunk failed, so that the keys are looked up again by the next runs)
+     */
+    @SuppressWarnings("OverlyLongMethod")
+    private Map<String, IntSet> batchLookup(final Collection<String> keys, final String cachePrefix, final String queryTemplate,
+                                            final IdentifierSetCodec codec, final ToIntFunction<CharSequence> valueParser) {
+        final Map<String, IntSet> values = new HashMap<>();
+        final Map<String, String> cacheKeys = new LinkedHashMap<>();
+        for (final String key : keys) {
+            if (key != null) {
+                cacheKeys.put(cachePrefix + key, key);
+            }
+        }
+        final Map<String, IntSet> cachedValues = cache.getAll(cacheKeys.keySet(), codec);
+        final List<String> misses = new ArrayList<>();
+        for (final Map.Entry<String, String> cacheKey : cacheKeys.entrySet()) {
+            final IntSet keyValues = cachedValues.get(cacheKey.getKey());
+            if (keyValues == null) {
+                misses.add(cacheKey.getValue());
+            } else {
+                values.put(cacheKey.getValue(), keyValues);
+            }
+        }
+
+        for (int from = 0; from < misses.size(); from += IN_LIST_CHUNK_SIZE) {
+            final List<String> chunk = misses.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, misses.size()));
+            final Map<String, IntSet> chunkValues = runInListQuery(queryTemplate, chunk, valueParser);
+            if (chunkValues == null) {
+                for (final String key : chunk) {
+                    values.put(key, new IntSet().freeze());
+                }
+            } else {
+                final Map<String, IntSet> valuesToCache = new HashMap<>();
+                for (final String key : chunk) {
+                    final IntSet keyValues = chunkValues.getOrDefault(key, new IntSet()).freeze();
+                    valuesToCache.put(cachePrefix + key, keyValues);
+                    values.put(key, keyValues);
+                }
+                cache.putAll(valuesToCache, codec);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return The values of the keys that have some, or null if the query failed (connection error, timeout of the
+     * pool, SQL error)
+     */
+    private Map<String, IntSet> runInListQuery(final String queryTemplate, final List<String> keys, final ToIntFunction<CharSequence> valueParser) {
+        //The key columns are compared case-insensitively by MySQL, the rows are fanned out accordingly
+        Map<String, IntSet> values = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final String placeholders = String.join(",", Collections.nCopies(keys.size(), "?"));
+        final String query = String.format(queryTemplate, placeholders);
+        try (final Connection connection = dataSource.getConnection()) {
+            try (final PreparedStatement statement = connection.prepareStatement(query)) {
+                int i = 1;
+                for (final String key : keys) {
+                    statement.setString(i, key);
+                    i++;
+                }
+                try (final ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        final int value = valueParser.applyAsInt(resultSet.getString(2));
+                        if (value != UMLSIdentifiers.INVALID) {
+                            values.computeIfAbsent(resultSet.getString(1), key -> new IntSet()).add(value);
                         }
                     }
-
                 }
-                tuis.addAll(localTuis);
+            } catch (final SQLException e) {
+                logger.error(ERROR_MESSAGE_CANNOT_RUN_SQL_QUERY, e.getLocalizedMessage());
+                values = null;
             }
+        } catch (final SQLException e) {
+            logger.error(e.getLocalizedMessage());
+            values = null;
         }
-        return tuis;
+        return values;
     }
 
-    private Collection<String> fetchPushListPreparedStatement(final PreparedStatement preparedStatement, final String cacheKey, final JedisCommands jedis) throws SQLException {
-        final Collection<String> collection = new ArrayList<>();
+    private IntSet fetchPushListPreparedStatement(final PreparedStatement preparedStatement, final String cacheKey) throws SQLException {
+        final IntSet cuis = new IntSet();
         try (final ResultSet resultSet = preparedStatement.executeQuery()) {
 
             while (resultSet.next()) {
-                collection.add(resultSet.getString(1));
-            }
-            if (collection.isEmpty()) {
-                EmptyResultsCache.markEmpty(cacheKey, jedis);
-            } else {
-                jedis.lpush(cacheKey, collection.toArray(new String[collection.size()]));
+                final int cui = UMLSIdentifiers.cuiToInt(resultSet.getString(1));
+                if (cui != UMLSIdentifiers.INVALID) {
+                    cuis.add(cui);
+                }
             }
+            cache.put(cacheKey, cuis.freeze(), IdentifierSetCodec.CUIS);
         }
-        return collection;
+        return cuis;
     }
 
     @Override
@@ -90,10 +251,12 @@ public class SQLUMLSDelegate implements UMLSDelegate {
         return getCUIConceptNameMap(languageCode, null);
     }
 
-    private String generateCUIString(final Collection<String> cuis) {
-        final Stream<String> stream = cuis.stream();
-        final Optional<String> reduce = stream.reduce(String::concat);
-        return reduce.orElse("");
+    private String generateCUIString(final IntSet cuis) {
+        final StringBuilder cuiString = new StringBuilder();
+        for (int i = 0; i < cuis.size(); i++) {
+            cuiString.append(UMLSIdentifiers.intToCUI(cuis.get(i)));
+        }
+        return cuiString.toString();
     }
 
     private String buildCUIDescriptionQuery(final int numberOfCUIs) {
@@ -114,120 +277,108 @@ public class SQLUMLSDelegate implements UMLSDelegate {
 
     @SuppressWarnings({"OverlyNestedMethod", "OverlyLongMethod", "OverlyComplexMethod"})
     @Override
-    public List<CUITerm> getCUIConceptNameMap(final UMLSLanguageCode languageCode, final Collection<String> cuis) {
-        Map<String, String> conceptNameMap;
-        try (Jedis jedis = jedisPool.getResource()) {
-            final String code = languageCode.getLanguageCode();
-            String key = CONCEPT_NAME_MAP_PREFIX + languageCode.getLanguageCode();
+    public List<CUITerm> getCUIConceptNameMap(final UMLSLanguageCode languageCode, final IntSet cuis) {
+        final String code = languageCode.getLanguageCode();
+        String key = CONCEPT_NAME_MAP_PREFIX + languageCode.getLanguageCode();
+        if (cuis != null) {
+            key += generateCUIString(cuis);
+        }
+        Map<String, String> conceptNameMap = cache.get(key, ConceptNameMapCodec.INSTANCE);
+        if (conceptNameMap == null) {
+            conceptNameMap = new HashMap<>();
             if (cuis != null) {
-                key += generateCUIString(cuis);
-            }
-            conceptNameMap = jedis.hgetAll(key);
-            if (conceptNameMap.isEmpty() && !EmptyResultsCache.isEmpty(key, jedis)) {
-                if (cuis != null) {
-                    final String query = buildCUIDescriptionQuery(cuis.size());
-                    synchronized (dataSource) {
-                        try (final Connection connection = dataSource.getConnection()) {
-                            try (final PreparedStatement statement = connection.prepareStatement(query)) {
-                                logger.debug(query);
-                                statement.setString(1, code);
-                                int i = 2;
-                                for (final String cui : cuis) {
-                                    statement.setString(i, cui);
-                                    i++;
-                                }
-                                try (final ResultSet resultSet = statement.executeQuery()) {
-                                    conceptNameMap = new HashMap<>();
-                                    while (resultSet.next()) {
-                                        final String value = resultSet.getString(2);
-                                        conceptNameMap.put(value, resultSet.getString(1));
-                                    }
-                                    if (conceptNameMap.isEmpty()) {
-                                        EmptyResultsCache.markEmpty(key, jedis);
-                                    } else {
-                                        jedis.hmset(key, conceptNameMap);
-                                    }
-                                }
-                            } catch (final SQLException e) {
-                                logger.error(ERROR_MESSAGE_CANNOT_RUN_SQL_QUERY, e.getLocalizedMessage());
+                final String query = buildCUIDescriptionQuery(cuis.size());
+                try (final Connection connection = dataSource.getConnection()) {
+                    try (final PreparedStatement statement = connection.prepareStatement(query)) {
+                        logger.debug(query);
+                        statement.setString(1, code);
+                        int i = 2;
+                        for (final String cui : cuiStrings(cuis)) {
+                            statement.setString(i, cui);
+                            i++;
+                        }
+                        try (final ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                final String value = resultSet.getString(2);
+                                conceptNameMap.put(value, resultSet.getString(1));
                             }
-                        } catch (final SQLException e) {
-                            logger.error(e.getLocalizedMessage());
+                            cache.put(key, conceptNameMap, ConceptNameMapCodec.INSTANCE);
                         }
+                    } catch (final SQLException e) {
+                        logger.error(ERROR_MESSAGE_CANNOT_RUN_SQL_QUERY, e.getLocalizedMessage());
                     }
+                } catch (final SQLException e) {
+                    logger.error(e.getLocalizedMessage());
                 }
             }
         }
         final List<CUITerm> cuiTerms = new ArrayList<>();
-        populateTermList(cuiTerms, conceptNameMap, languageCode);
+        ConceptNameTerms.populateTermList(cuiTerms, conceptNameMap, languageCode);
         return cuiTerms;
     }
 
-    @SuppressWarnings({"OverlyNestedMethod", "OverlyLongMethod"})
     @Override
-    public Collection<String> getUMLSCUIs(final String code, final UMLSLanguageCode languageCode) {
-        Collection<String> codes;
-        try(Jedis jedis = jedisPool.getResource()) {
-            final String key = CONCEPT_CODE_PREFIX + code;
-            codes = jedis.lrange(key, 0, -1);
-            if (codes.isEmpty() && !EmptyResultsCache.isEmpty(key, jedis)) {
-                //noinspection SynchronizeOnNonFinalField
-                synchronized (dataSource) {
-                    try (final Connection connection = dataSource.getConnection()) {
-                        try (final PreparedStatement statement = connection.prepareStatement("SELECT DISTINCT CUI FROM MRCONSO WHERE CODE = ? AND LAT= ?")) {
-                            statement.setString(1, code);
-                            statement.setString(2, languageCode.getLanguageCode());
-                            codes = fetchPushListPreparedStatement(statement, key,jedis);
-                        } catch (final SQLException e) {
-                            logger.error(ERROR_MESSAGE_CANNOT_RUN_SQL_QUERY, e.getLocalizedMessage());
+    public IntSet getCandidateCUIs(final String text, final UMLSLanguageCode languageCode, final int maxCandidates) {
+        return tokenIndexes.computeIfAbsent(languageCode, this::loadTokenIndex).getCandidateCUIs(text, maxCandidates);
+    }
+
+    private ConceptTokenIndex loadTokenIndex(final UMLSLanguageCode languageCode) {
+        logger.info("Indexing the {} concept names of UMLS...", languageCode);
+        final ConceptTokenIndex.Builder builder = new ConceptTokenIndex.Builder();
+        try (final Connection connection = dataSource.getConnection()) {
+            try (final PreparedStatement statement = connection.prepareStatement(CONCEPT_NAMES_QUERY)) {
+                statement.setString(1, languageCode.getLanguageCode());
+                statement.setFetchSize(CONCEPT_NAMES_FETCH_SIZE);
+                try (final ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        final int cui = UMLSIdentifiers.cuiToInt(resultSet.getString(1));
+                        if (cui != UMLSIdentifiers.INVALID) {
+                            builder.add(cui, resultSet.getString(2));
                         }
-                    } catch (final SQLException e) {
-                        logger.error(e.getLocalizedMessage());
                     }
                 }
+            } catch (final SQLException e) {
+                logger.error(ERROR_MESSAGE_CANNOT_RUN_SQL_QUERY, e.getLocalizedMessage());
             }
+        } catch (final SQLException e) {
+            logger.error(e.getLocalizedMessage());
         }
-        return codes;
+        final ConceptTokenIndex tokenIndex = builder.build();
+        logger.info("\t{} distinct tokens", tokenIndex.size());
+        return tokenIndex;
     }
 
     @SuppressWarnings({"OverlyNestedMethod", "OverlyLongMethod"})
     @Override
-    public Collection<String> getUMLSCUIs(final String code) {
-        Collection<String> codes;
-        try(Jedis jedis = jedisPool.getResource()) {
-            final String key = CONCEPT_CODE_PREFIX + code;
-            codes = jedis.lrange(key, 0, -1);
-            if (codes.isEmpty() && !EmptyResultsCache.isEmpty(key, jedis)) {
-                //noinspection SynchronizeOnNonFinalField
-                synchronized (dataSource) {
-                    try (final Connection connection = dataSource.getConnection()) {
-                        try (final PreparedStatement statement = connection.prepareStatement("SELECT DISTINCT CUI FROM MRCONSO WHERE CODE = ?")) {
-                            statement.setString(1, code);
-                            codes = fetchPushListPreparedStatement(statement, key,jedis);
-                        } catch (final SQLException e) {
-                            logger.error(ERROR_MESSAGE_CANNOT_RUN_SQL_QUERY, e.getLocalizedMessage());
-                        }
-                    } catch (final SQLException e) {
-                        logger.error(e.getLocalizedMessage());
-                    }
+    public IntSet getUMLSCUIs(final String code, final UMLSLanguageCode languageCode) {
+        if (code == null) {
+            return new IntSet();
+        }
+        final String key = CONCEPT_CODE_PREFIX + code;
+        IntSet codes = cache.get(key, IdentifierSetCodec.CUIS);
+        if (codes == null) {
+            codes = new IntSet();
+            try (final Connection connection = dataSource.getConnection()) {
+                try (final PreparedStatement statement = connection.prepareStatement("SELECT DISTINCT CUI FROM MRCONSO WHERE CODE = ? AND LAT= ?")) {
+                    statement.setString(1, code);
+                    statement.setString(2, languageCode.getLanguageCode());
+                    codes = fetchPushListPreparedStatement(statement, key);
+                } catch (final SQLException e) {
+                    logger.error(ERROR_MESSAGE_CANNOT_RUN_SQL_QUERY, e.getLocalizedMessage());
                 }
+            } catch (final SQLException e) {
+                logger.error(e.getLocalizedMessage());
             }
         }
         return codes;
     }
 
-
-    private void populateTermList(final List<CUITerm> cuiTerms, final Map<String, String> conceptNameMap, final UMLSLanguageCode languageCode) {
-        for (final Map.Entry<String, String> entry : conceptNameMap.entrySet()) {
-            final SemanticSignature semanticSignature =
-                    DefaultSemanticSignatureFactory.DEFAULT.createSemanticSignature(entry.getKey());
-            final CUITerm cuiTerm = new CUITermImpl(entry.getValue(), entry.getKey(), languageCode, semanticSignature);
-            if (cuiTerms.contains(cuiTerm)) {
-                final CUITerm other = cuiTerms.get(cuiTerms.indexOf(cuiTerm));
-                other.appendToSignature(cuiTerm.getTerm());
-            } else {
-                cuiTerms.add(cuiTerm);
-            }
+    @Override
+    public IntSet getUMLSCUIs(final String code) {
+        if (code == null) {
+            return new IntSet();
         }
+        final Map<String, IntSet> cuisForCodes = getUMLSCUIsForCodes(Collections.singletonList(code));
+        return cuisForCodes.getOrDefault(code, new IntSet());
     }
 }
@@ -2,16 +2,58 @@ package org.sifrproject.ontology.umls;
 
 
 import org.sifrproject.ontology.matching.CUITerm;
+import org.sifrproject.utils.collections.IntObjectMap;
+import org.sifrproject.utils.collections.IntSet;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Access to UMLS. The CUIs and TUIs are exchanged in their integer form (see {@link UMLSIdentifiers}), the sets
+ * returned may be shared through the cache and must be copied before being modified.
+ */
 public interface UMLSDelegate {
-    Collection<String> getTUIsForCUIs(final Collection<String> cuis);
+    IntSet getTUIsForCUIs(final IntSet cuis);
+
+    /**
+     * Batch version of getTUIsForCUIs, resolves the TUIs of many CUIs in a few round trips
+     *
+     * @param cuis The CUIs
+     * @return The TUIs of each CUI, CUIs without TUIs are mapped to an empty set
+     */
+    IntObjectMap<IntSet> getTUIsPerCUI(final IntSet cuis);
+
+    /**
+     * Batch version of getUMLSCUIs, resolves the CUIs of many codes in a few round trips
+     *
+     * @param codes The codes
+     * @return The CUIs of each code, codes without CUIs are mapped to an empty set
+     */
+    Map<String, IntSet> getUMLSCUIsForCodes(final Collection<String> codes);
+
     List<CUITerm> getCUIConceptNameMap(final UMLSLanguageCode languageCode);
-    List<CUITerm> getCUIConceptNameMap(final UMLSLanguageCode languageCode, Collection<String> cuis);
+    List<CUITerm> getCUIConceptNameMap(final UMLSLanguageCode languageCode, IntSet cuis);
 
+    /**
+     * Candidate retrieval for matching a text against all the concept names of a language, through an inverted index
+     * from the tokens of the names to their CUIs
+     *
+     * @param text          The text to match, e.g. the label of a class
+     * @param languageCode  The language of the concept names
+     * @param maxCandidates The maximum number of CUIs returned
+     * @return The CUIs of the concept names sharing the most (rare) tokens with the text
+     */
+    IntSet getCandidateCUIs(final String text, final UMLSLanguageCode languageCode, final int maxCandidates);
+
+    /**
+     * @return The CUIs of the code in the language, an empty set if the code is null
+     */
     @SuppressWarnings({"OverlyNestedMethod", "OverlyLongMethod"})
-    Collection<String> getUMLSCUIs(final String code, final UMLSLanguageCode languageCode);
-    public Collection<String> getUMLSCUIs(final String code);
+    IntSet getUMLSCUIs(final String code, final UMLSLanguageCode languageCode);
+
+    /**
+     * @return The CUIs of the code in all the languages, an empty set if the code is null
+     */
+    public IntSet getUMLSCUIs(final String code);
 }
@@ -0,0 +1,56 @@
+package org.sifrproject.ontology.umls;
+
+
+import org.sifrproject.utils.cache.TwoTierCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import static org.sifrproject.configuration.ConfigurationConstants.CONFIG_UMLS_BACKEND;
+import static org.sifrproject.configuration.ConfigurationConstants.CONFIG_UMLS_EMBEDDED_PATH;
+
+/**
+ * Creates the UMLS delegate selected by the configuration: the SQL database (default) or the embedded local index
+ */
+public final class UMLSDelegateFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(UMLSDelegateFactory.class);
+
+    private static final String SQL_BACKEND = "sql";
+    private static final String EMBEDDED_BACKEND = "embedded";
+
+    private UMLSDelegateFactory() {
+    }
+
+    /**
+     * @param properties The configuration properties
+     * @param cache      The cache of the results of the SQL backend
+     * @return The UMLS delegate, the program exits if the configured backend cannot be opened
+     */
+    public static UMLSDelegate create(final Properties properties, final TwoTierCache cache) {
+        final String backend = properties.getProperty(CONFIG_UMLS_BACKEND, SQL_BACKEND).trim();
+        UMLSDelegate umlsDelegate = null;
+        if (backend.equals(EMBEDDED_BACKEND)) {
+            final String indexPath = properties.getProperty(CONFIG_UMLS_EMBEDDED_PATH);
+            if (indexPath == null) {
+                logger.error("{} must be set to use the embedded UMLS backend", CONFIG_UMLS_EMBEDDED_PATH);
+                System.exit(1);
+            }
+            try {
+                umlsDelegate = new EmbeddedUMLSDelegate(Paths.get(indexPath.trim()));
+            } catch (final IOException e) {
+                logger.error("Cannot open the embedded UMLS index: {}", e.getLocalizedMessage());
+                System.exit(1);
+            }
+        } else if (backend.equals(SQL_BACKEND)) {
+            umlsDelegate = SQLUMLSDelegate.fromProperties(properties, cache);
+        } else {
+            logger.error("Unknown UMLS backend: {}", backend);
+            System.exit(1);
+        }
+        return umlsDelegate;
+    }
+}
@@ -0,0 +1,65 @@
+package org.sifrproject.ontology.umls;
+
+
+/**
+ * Conversions between the UMLS identifiers and their compact integer representation: CUIs (C + 7 digits) and TUIs
+ * (T + 3 digits) are encoded by their numeric part.
+ */
+public final class UMLSIdentifiers {
+
+    /**
+     * Returned by the encoding methods for strings that are not valid identifiers
+     */
+    public static final int INVALID = -1;
+
+    private static final char CUI_PREFIX = 'C';
+    private static final int CUI_DIGITS = 7;
+    private static final char TUI_PREFIX = 'T';
+    private static final int TUI_DIGITS = 3;
+
+    private UMLSIdentifiers() {
+    }
+
+    public static int cuiToInt(final CharSequence cui) {
+        return identifierToInt(cui, CUI_PREFIX, CUI_DIGITS);
+    }
+
+    public static String intToCUI(final int cui) {
+        return intToIdentifier(cui, CUI_PREFIX, CUI_DIGITS);
+    }
+
+    public static int tuiToInt(final CharSequence tui) {
+        return identifierToInt(tui, TUI_PREFIX, TUI_DIGITS);
+    }
+
+    public static String intToTUI(final int tui) {
+        return intToIdentifier(tui, TUI_PREFIX, TUI_DIGITS);
+    }
+
+    private static int identifierToInt(final CharSequence identifier, final char prefix, final int digits) {
+        int value = INVALID;
+        if ((identifier != null) && (identifier.length() == (digits + 1)) && (identifier.charAt(0) == prefix)) {
+            value = 0;
+            for (int i = 1; (i <= digits) && (value != INVALID); i++) {
+                final char digit = identifier.charAt(i);
+                if ((digit >= '0') && (digit <= '9')) {
+                    value = (value * 10) + (digit - '0');
+                } else {
+                    value = INVALID;
+                }
+            }
+        }
+        return value;
+    }
+
+    private static String intToIdentifier(final int value, final char prefix, final int digits) {
+        final char[] chars = new char[digits + 1];
+        chars[0] = prefix;
+        int remainder = value;
+        for (int i = digits; i > 0; i--) {
+            chars[i] = (char) ('0' + (remainder % 10));
+            remainder /= 10;
+        }
+        return new String(chars);
+    }
+}
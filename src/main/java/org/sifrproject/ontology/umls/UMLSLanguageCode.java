@@ -42,4 +42,18 @@ public enum UMLSLanguageCode {
     public String getShortCode() {
         return shortCode;
     }
+
+    /**
+     * @param languageCode The UMLS language code (LAT column of MRCONSO)
+     * @return The corresponding language, or null if the language is not supported
+     */
+    public static UMLSLanguageCode fromLanguageCode(final String languageCode) {
+        UMLSLanguageCode language = null;
+        for (final UMLSLanguageCode candidate : values()) {
+            if (candidate.languageCode.equals(languageCode)) {
+                language = candidate;
+            }
+        }
+        return language;
+    }
 }
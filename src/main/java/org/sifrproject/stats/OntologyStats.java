@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("PublicMethodNotExposedInInterface")
 class OntologyStats implements StatsHandler {
@@ -85,18 +86,18 @@ class OntologyStats implements StatsHandler {
 
     private static final class Statistic {
         private final String description;
-        private int count;
+        private final AtomicInteger count = new AtomicInteger();
 
         Statistic(final String description) {
             this.description = description;
         }
 
         void increment() {
-            count++;
+            count.incrementAndGet();
         }
 
         int getCount() {
-            return count;
+            return count.get();
         }
 
         String getDescription() {
@@ -105,7 +106,7 @@ class OntologyStats implements StatsHandler {
 
         @Override
         public String toString() {
-            return String.format("%d -> '%s'}", count, description);
+            return String.format("%d -> '%s'}", count.get(), description);
         }
     }
 }
@@ -0,0 +1,52 @@
+package org.sifrproject.utils;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+import static org.sifrproject.configuration.ConfigurationConstants.CONFIG_LOAD_MODE;
+
+/**
+ * How {@link OntologyLoader} builds the model of an ontology. The processing only follows asserted statements (labels,
+ * notations, mappings), so the inference is rarely needed: a plain model loads and answers lookups much faster, and the
+ * few ontologies that rely on inferred statements (e.g. classes only typed through a subclass of owl:Class) can be
+ * loaded with their RDFS closure computed once.
+ */
+public enum LoadMode {
+    /**
+     * OWL model with an RDFS reasoner, the inferences are computed when the model is queried
+     */
+    RDFS_INFERENCE,
+    /**
+     * OWL model over the asserted statements only
+     */
+    PLAIN,
+    /**
+     * OWL model over the asserted statements and their RDFS closure, materialized once at load time in a separate
+     * sub-model: the changes and the written model only concern the asserted statements
+     */
+    CLOSURE;
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadMode.class);
+
+    /**
+     * @return The load mode configured in the properties, {@link #RDFS_INFERENCE} if not set, the program exits if
+     * the mode is unknown
+     */
+    public static LoadMode fromProperties(final Properties properties) {
+        final String name = properties.getProperty(CONFIG_LOAD_MODE, RDFS_INFERENCE.name()).trim();
+        LoadMode loadMode = null;
+        for (final LoadMode candidate : values()) {
+            if (candidate.name().equalsIgnoreCase(name)) {
+                loadMode = candidate;
+            }
+        }
+        if (loadMode == null) {
+            logger.error("Unknown load mode: {}", name);
+            System.exit(1);
+        }
+        return loadMode;
+    }
+}
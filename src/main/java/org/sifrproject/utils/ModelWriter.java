@@ -0,0 +1,121 @@
+package org.sifrproject.utils;
+
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ResIterator;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Output of a model to a file whose format is chosen from its name: N-Triples (.nt) and Turtle (.ttl) are streamed
+ * subject by subject in subject order, without building the serialization in memory, the other extensions are written
+ * by the Jena writer of the given format. A .gz or .bz2 suffix compresses the output.
+ */
+public final class ModelWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelWriter.class);
+
+    private static final Pattern COMPRESSION_SUFFIX = Pattern.compile("\\.(bz2|gz)$");
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 20;
+
+    private static final Comparator<Node> SUBJECT_ORDER = Comparator.comparing(Node::isBlank)
+            .thenComparing(subject -> subject.isBlank() ? subject.getBlankNodeLabel() : subject.getURI());
+
+    private ModelWriter() {
+    }
+
+    /**
+     * @return true if the file name designates a format written as a stream (N-Triples or Turtle)
+     */
+    public static boolean isStreamed(final String fileName) {
+        return (fileName != null) && (getStreamFormat(fileName) != null);
+    }
+
+    /**
+     * @param model          The model to write, the inferred statements of an inference model are written as well, pass
+     *                       its base model to write only the asserted ones
+     * @param fileName       The output file
+     * @param fallbackFormat The Jena format used when the file name does not designate a streamed format
+     */
+    public static void write(final Model model, final String fileName, final String fallbackFormat) throws IOException {
+        final RDFFormat streamFormat = getStreamFormat(fileName);
+        try (OutputStream outputStream = openOutputStream(fileName)) {
+            if (streamFormat == null) {
+                model.write(outputStream, fallbackFormat);
+            } else {
+                writeSorted(model, StreamRDFWriter.getWriterStream(outputStream, streamFormat));
+            }
+        }
+    }
+
+    private static void writeSorted(final Model model, final StreamRDF stream) {
+        final List<Node> subjects = new ArrayList<>();
+        final ResIterator subjectIterator = model.listSubjects();
+        while (subjectIterator.hasNext()) {
+            subjects.add(subjectIterator.next().asNode());
+        }
+        subjects.sort(SUBJECT_ORDER);
+        logger.info("\tWriting the statements of {} subjects...", subjects.size());
+
+        final Graph graph = model.getGraph();
+        stream.start();
+        for (final Map.Entry<String, String> prefix : model.getNsPrefixMap().entrySet()) {
+            stream.prefix(prefix.getKey(), prefix.getValue());
+        }
+        for (final Node subject : subjects) {
+            final ExtendedIterator<Triple> triples = graph.find(subject, Node.ANY, Node.ANY);
+            while (triples.hasNext()) {
+                stream.triple(triples.next());
+            }
+            triples.close();
+        }
+        stream.finish();
+    }
+
+    static RDFFormat getStreamFormat(final String fileName) {
+        final Lang lang = RDFLanguages.filenameToLang(COMPRESSION_SUFFIX.matcher(fileName).replaceFirst(""));
+        RDFFormat format = null;
+        if (RDFLanguages.NTRIPLES.equals(lang)) {
+            format = RDFFormat.NTRIPLES_UTF8;
+        } else if (RDFLanguages.TURTLE.equals(lang)) {
+            format = RDFFormat.TURTLE_BLOCKS;
+        }
+        return format;
+    }
+
+    @SuppressWarnings({"resource", "IOResourceOpenedButNotSafelyClosed"})
+    static OutputStream openOutputStream(final String fileName) throws IOException {
+        final OutputStream fileStream = new BufferedOutputStream(Files.newOutputStream(Paths.get(fileName)), OUTPUT_BUFFER_SIZE);
+        final OutputStream outputStream;
+        if (fileName.endsWith(".bz2")) {
+            outputStream = new BZip2CompressorOutputStream(fileStream);
+        } else if (fileName.endsWith(".gz")) {
+            outputStream = new GzipCompressorOutputStream(fileStream);
+        } else {
+            outputStream = fileStream;
+        }
+        return outputStream;
+    }
+}
@@ -5,18 +5,24 @@ import com.hp.hpl.jena.ontology.OntModel;
 import com.hp.hpl.jena.ontology.OntModelSpec;
 import com.hp.hpl.jena.query.Dataset;
 import com.hp.hpl.jena.query.ReadWrite;
+import com.hp.hpl.jena.rdf.model.InfModel;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.reasoner.ReasonerRegistry;
 import com.hp.hpl.jena.tdb.TDBFactory;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -28,6 +34,8 @@ public final class OntologyLoader {
     private static final Logger logger = LoggerFactory.getLogger(OntologyLoader.class);
 
     private static final Pattern URL_PATTERN = Pattern.compile("[^:]{2,6}:.*");
+    private static final Pattern COMPRESSION_SUFFIX = Pattern.compile("\\.(bz2|gz)$");
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
 
     public static final String TURTLE = "TURTLE";
 
@@ -35,38 +43,40 @@ public final class OntologyLoader {
     }
 
     /**
-     * Load the input ontology to process in a Jena OntModel, supports local uncompressed files, bziped/gzipped files and
-     * remote files over http
+     * Load the input ontology to process in a Jena OntModel with an RDFS reasoner, supports local uncompressed files,
+     * bziped/gzipped files, TDB datasets and remote files over http
      */
     public static OntModel loadModel(final String modelURL) {
+        return loadModel(modelURL, LoadMode.RDFS_INFERENCE);
+    }
+
+    /**
+     * Load the input ontology to process in a Jena OntModel. The files are streamed by the RIOT parser into a plain
+     * graph (the language is guessed from the file name, RDF/XML by default), the model is then built over this graph
+     * according to the load mode.
+     */
+    public static OntModel loadModel(final String modelURL, final LoadMode loadMode) {
         final Path path = Paths.get(modelURL);
-        OntModel ontModel = ModelFactory.createOntologyModel(OntModelSpec.OWL_DL_MEM_RDFS_INF);
+        Model model = ModelFactory.createDefaultModel();
         try {
             logger.info("Reading ontology model...");
             final Matcher matcher = URL_PATTERN.matcher(modelURL);
             if (matcher.matches()) {
                 // It's an URL
-                ontModel.read(modelURL);
+                model.read(modelURL);
                 logger.info("\tFrom URL: {}", modelURL);
             } else if (Files.isDirectory(path)) {
                 logger.info("\tFrom TDB dataset: {}", modelURL);
                 final Dataset dataset = TDBFactory.createDataset(path.toString());
                 dataset.begin(ReadWrite.READ);
-                final Model model = dataset.getDefaultModel();
+                model = dataset.getDefaultModel();
                 dataset.end();
-                ontModel = ModelFactory.createOntologyModel(OntModelSpec.OWL_DL_MEM_RDFS_INF, model);
             } else {
                 logger.info("\tFrom File: {}", modelURL);
                 // It's a file
-                @SuppressWarnings("HardcodedFileSeparator") String rdfFormat = "RDF/XML";
-                if (modelURL.contains(".ttl")) {
-                    rdfFormat = TURTLE;
+                try (InputStream modelStream = getFileModelStream(modelURL)) {
+                    RDFDataMgr.read(model, modelStream, getFileLanguage(modelURL));
                 }
-
-                final InputStreamReader modelReader = getFileModelReader(modelURL);
-
-                ontModel.read(modelReader, null, rdfFormat);
-                modelReader.close();
             }
 
         } catch (final FileNotFoundException e) {
@@ -75,19 +85,54 @@ public final class OntologyLoader {
         } catch (final IOException e) {
             logger.error(e.getLocalizedMessage());
         }
+        return createOntModel(model, loadMode);
+    }
+
+    private static OntModel createOntModel(final Model model, final LoadMode loadMode) {
+        final OntModel ontModel;
+        switch (loadMode) {
+            case PLAIN:
+                ontModel = ModelFactory.createOntologyModel(OntModelSpec.OWL_DL_MEM, model);
+                break;
+            case CLOSURE:
+                //The asserted statements stay the base model, the one written and modified
+                ontModel = ModelFactory.createOntologyModel(OntModelSpec.OWL_DL_MEM, model);
+                ontModel.addSubModel(materializeEntailments(model));
+                break;
+            default:
+                ontModel = ModelFactory.createOntologyModel(OntModelSpec.OWL_DL_MEM_RDFS_INF, model);
+                break;
+        }
         return ontModel;
     }
 
+    /**
+     * @return An in-memory model of the statements entailed by the RDFS subclass and subproperty hierarchies (type and
+     * property inheritance) that are not asserted in the model
+     */
+    private static Model materializeEntailments(final Model model) {
+        logger.info("Computing the RDFS closure...");
+        final InfModel infModel = ModelFactory.createInfModel(ReasonerRegistry.getRDFSSimpleReasoner(), model);
+        final Model entailments = infModel.difference(model);
+        logger.info("\t{} entailed statements, {} asserted", entailments.size(), model.size());
+        return entailments;
+    }
+
+    static Lang getFileLanguage(final String modelURL) {
+        return RDFLanguages.filenameToLang(COMPRESSION_SUFFIX.matcher(modelURL).replaceFirst(""), RDFLanguages.RDFXML);
+    }
+
     @SuppressWarnings({"resource", "IOResourceOpenedButNotSafelyClosed"})
-    private static InputStreamReader getFileModelReader(final String modelURL) throws IOException {
-        final InputStreamReader modelReader;
+    static InputStream getFileModelStream(final String modelURL) throws IOException {
+        final InputStream modelStream = new BufferedInputStream(new FileInputStream(modelURL), STREAM_BUFFER_SIZE);
+        final InputStream uncompressedStream;
         if (modelURL.endsWith(".bz2")) {
-            modelReader = new InputStreamReader(new BZip2CompressorInputStream(new FileInputStream(modelURL)), "UTF-8");
+            uncompressedStream = new BZip2CompressorInputStream(modelStream);
         } else if (modelURL.endsWith(".gz")) {
-            modelReader = new InputStreamReader(new GzipCompressorInputStream(new FileInputStream(modelURL)), "UTF-8");
+            uncompressedStream = new GzipCompressorInputStream(modelStream);
         } else {
-            modelReader = new InputStreamReader(new FileInputStream(modelURL), "UTF-8");
+            uncompressedStream = modelStream;
         }
-        return modelReader;
+        return uncompressedStream;
     }
 }
@@ -0,0 +1,196 @@
+package org.sifrproject.utils;
+
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.ReadWrite;
+import com.hp.hpl.jena.tdb.TDBFactory;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.riot.tokens.Token;
+import org.apache.jena.riot.tokens.TokenType;
+import org.apache.jena.riot.tokens.Tokenizer;
+import org.apache.jena.riot.tokens.TokenizerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Applies an RDF patch written by {@link RDFPatchWriter} to a TDB dataset, in place within a write transaction, or to
+ * an RDF file, streamed into a new N-Triples or Turtle file. Only the net changes of the patch are kept in memory (a
+ * statement added then removed is a deletion), the base file is never loaded as a whole: its statements are copied
+ * unless deleted, then the added statements that it did not contain are appended.
+ */
+public final class RDFPatchApplier {
+
+    private static final Logger logger = LoggerFactory.getLogger(RDFPatchApplier.class);
+
+    private final Set<Triple> additions = new LinkedHashSet<>();
+    private final Set<Triple> deletions = new HashSet<>();
+
+    private RDFPatchApplier() {
+    }
+
+    /**
+     * @param patchFile The patch, optionally compressed
+     * @return The net changes of the patch
+     */
+    public static RDFPatchApplier read(final String patchFile) throws IOException {
+        final RDFPatchApplier applier = new RDFPatchApplier();
+        try (InputStream patchStream = OntologyLoader.getFileModelStream(patchFile)) {
+            final Tokenizer tokenizer = TokenizerFactory.makeTokenizerUTF8(patchStream);
+            while (tokenizer.hasNext()) {
+                final Token operation = tokenizer.next();
+                if (!operation.hasType(TokenType.KEYWORD)) {
+                    throw new IOException("Invalid patch operation at line " + tokenizer.getLine() + ": " + operation);
+                }
+                switch (operation.getImage()) {
+                    case RDFPatchWriter.ADDITION:
+                        applier.add(readTriple(tokenizer));
+                        break;
+                    case RDFPatchWriter.DELETION:
+                        applier.delete(readTriple(tokenizer));
+                        break;
+                    default:
+                        //Header and transaction boundaries, a patch is applied as a whole
+                        skipToDot(tokenizer);
+                        break;
+                }
+            }
+            tokenizer.close();
+        }
+        logger.info("Read {} additions and {} deletions from {}", applier.additions.size(), applier.deletions.size(), patchFile);
+        return applier;
+    }
+
+    private static Triple readTriple(final Tokenizer tokenizer) throws IOException {
+        final Node subject = readNode(tokenizer);
+        final Node predicate = readNode(tokenizer);
+        final Node object = readNode(tokenizer);
+        if (!tokenizer.hasNext() || !tokenizer.next().hasType(TokenType.DOT)) {
+            throw new IOException("Missing end of patch statement at line " + tokenizer.getLine());
+        }
+        return Triple.create(subject, predicate, object);
+    }
+
+    private static Node readNode(final Tokenizer tokenizer) throws IOException {
+        if (!tokenizer.hasNext()) {
+            throw new IOException("Truncated patch statement at line " + tokenizer.getLine());
+        }
+        final Token token = tokenizer.next();
+        if (!token.isNode()) {
+            throw new IOException("Invalid patch term at line " + tokenizer.getLine() + ": " + token);
+        }
+        return token.asNode();
+    }
+
+    private static void skipToDot(final Tokenizer tokenizer) {
+        boolean dot = false;
+        while (!dot && tokenizer.hasNext()) {
+            dot = tokenizer.next().hasType(TokenType.DOT);
+        }
+    }
+
+    private void add(final Triple triple) {
+        deletions.remove(triple);
+        additions.add(triple);
+    }
+
+    private void delete(final Triple triple) {
+        additions.remove(triple);
+        deletions.add(triple);
+    }
+
+    /**
+     * Apply the patch to a TDB dataset, in a single write transaction
+     */
+    public void applyToDataset(final Path datasetDirectory) {
+        final Dataset dataset = TDBFactory.createDataset(datasetDirectory.toString());
+        dataset.begin(ReadWrite.WRITE);
+        try {
+            final Graph graph = dataset.getDefaultModel().getGraph();
+            for (final Triple triple : deletions) {
+                graph.delete(triple);
+            }
+            for (final Triple triple : additions) {
+                graph.add(triple);
+            }
+            dataset.commit();
+        } finally {
+            dataset.end();
+        }
+        logger.info("Patch applied to {}", datasetDirectory);
+    }
+
+    /**
+     * Apply the patch to an RDF file, optionally compressed, writing the patched statements to a new file
+     *
+     * @param baseFile   The file to patch, left unchanged
+     * @param outputFile The patched file, N-Triples (.nt) or Turtle (.ttl), optionally followed by .gz or .bz2
+     */
+    public void applyToFile(final String baseFile, final String outputFile) throws IOException {
+        final RDFFormat outputFormat = ModelWriter.getStreamFormat(outputFile);
+        if (outputFormat == null) {
+            throw new IOException("The patched file must be N-Triples (.nt) or Turtle (.ttl): " + outputFile);
+        }
+        final Set<Triple> pendingAdditions = new LinkedHashSet<>(additions);
+        try (InputStream baseStream = OntologyLoader.getFileModelStream(baseFile);
+             OutputStream outputStream = ModelWriter.openOutputStream(outputFile)) {
+            final StreamRDF output = StreamRDFWriter.getWriterStream(outputStream, outputFormat);
+            final StreamRDF patchedStream = new StreamRDFWrapper(output) {
+                @Override
+                public void triple(final Triple triple) {
+                    //A statement of the base that is added again is copied once
+                    pendingAdditions.remove(triple);
+                    if (!deletions.contains(triple)) {
+                        other.triple(triple);
+                    }
+                }
+
+                @Override
+                public void finish() {
+                    for (final Triple triple : pendingAdditions) {
+                        other.triple(triple);
+                    }
+                    other.finish();
+                }
+            };
+            RDFDataMgr.parse(patchedStream, baseStream, OntologyLoader.getFileLanguage(baseFile));
+        }
+        logger.info("Patch applied to {}, written to {}", baseFile, outputFile);
+    }
+
+    private static void syntax() {
+        logger.error("Syntax: command [patch file] [base RDF file or TDB directory] [patched RDF file, for a base file]");
+        System.exit(1);
+    }
+
+    public static void main(final String... args) throws IOException {
+        if (args.length < 2) {
+            syntax();
+        }
+        final RDFPatchApplier applier = read(args[0]);
+        final Path base = Paths.get(args[1]);
+        if (Files.isDirectory(base)) {
+            applier.applyToDataset(base);
+        } else if (args.length > 2) {
+            applier.applyToFile(args[1], args[2]);
+        } else {
+            syntax();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.sifrproject.utils;
+
+
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.listeners.StatementListener;
+import com.hp.hpl.jena.rdf.model.Statement;
+import org.apache.jena.riot.out.NodeFmtLib;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Listener of a model that writes the statements added to and removed from the model as an RDF patch: one addition
+ * (A) or deletion (D) per line with its terms in N-Triples syntax, in the order of the changes, within a single
+ * transaction (TX ... TC). The patch is streamed to the file as the model changes, see {@link RDFPatchApplier} to
+ * apply it.
+ * <p>
+ * Jena notifies the statements passed to add and remove whether or not they change the model, the patch may
+ * contain additions of statements that were present and deletions of absent ones, which have no effect when applied.
+ * Meant to be registered on a model modified by a single thread.
+ */
+public final class RDFPatchWriter extends StatementListener implements Closeable {
+
+    static final String HEADER = "H";
+    static final String TRANSACTION_BEGIN = "TX";
+    static final String TRANSACTION_COMMIT = "TC";
+    static final String ADDITION = "A";
+    static final String DELETION = "D";
+
+    private final Writer writer;
+    private long additionCount;
+    private long deletionCount;
+
+    /**
+     * @param fileName The patch file, a .gz or .bz2 suffix compresses it
+     */
+    @SuppressWarnings({"resource", "IOResourceOpenedButNotSafelyClosed"})
+    public RDFPatchWriter(final String fileName) throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(ModelWriter.openOutputStream(fileName), StandardCharsets.UTF_8));
+        writer.write(HEADER + " id <uuid:" + UUID.randomUUID() + "> .\n");
+        writer.write(TRANSACTION_BEGIN + " .\n");
+    }
+
+    @Override
+    public void addedStatement(final Statement statement) {
+        write(ADDITION, statement.asTriple());
+        additionCount++;
+    }
+
+    @Override
+    public void removedStatement(final Statement statement) {
+        write(DELETION, statement.asTriple());
+        deletionCount++;
+    }
+
+    private void write(final String operation, final Triple triple) {
+        try {
+            writer.write(operation);
+            writer.write(' ');
+            writer.write(NodeFmtLib.str(triple.getSubject()));
+            writer.write(' ');
+            writer.write(NodeFmtLib.str(triple.getPredicate()));
+            writer.write(' ');
+            writer.write(NodeFmtLib.str(triple.getObject()));
+            writer.write(" .\n");
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getAdditionCount() {
+        return additionCount;
+    }
+
+    public long getDeletionCount() {
+        return deletionCount;
+    }
+
+    /**
+     * Commit the transaction of the patch and close the file
+     */
+    @Override
+    public void close() throws IOException {
+        writer.write(TRANSACTION_COMMIT + " .\n");
+        writer.close();
+    }
+}
@@ -0,0 +1,154 @@
+package org.sifrproject.utils.cache;
+
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process cache bounded by a maximum number of entries, with frequency-aware eviction: when a segment is full, a new
+ * entry is only admitted if its key was accessed more frequently than the least recently used entry of the segment,
+ * which is then evicted (TinyLFU admission over an LRU order). Hot keys therefore stay in the cache while keys read
+ * once do not push them out.
+ * <p>
+ * The cache is split into independently locked segments so that concurrent workers rarely contend on the same monitor.
+ * Values must be immutable, they are shared between all the readers.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public final class BoundedCache<K, V> {
+
+    private static final int SEGMENTS = 32;
+
+    private final Segment<K, V>[] segments;
+    private final FrequencySketch sketch;
+    private final int maximumSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param maximumSize The maximum number of entries, 0 disables the cache
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedCache(final int maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+        final int segmentCount = Math.max(1, Math.min(SEGMENTS, this.maximumSize));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(this.maximumSize / segmentCount);
+        }
+        sketch = new FrequencySketch(this.maximumSize);
+    }
+
+    private Segment<K, V> segmentFor(final Object key) {
+        final int hash = key.hashCode();
+        return segments[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % segments.length];
+    }
+
+    /**
+     * @return The cached value, or null if the key is not in the cache
+     */
+    public V get(final K key) {
+        V value = null;
+        if (maximumSize > 0) {
+            sketch.increment(key);
+            value = segmentFor(key).get(key);
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public void put(final K key, final V value) {
+        if (maximumSize > 0) {
+            final Segment<K, V> segment = segmentFor(key);
+            synchronized (segment) {
+                if (segment.entries.containsKey(key) || (segment.entries.size() < segment.capacity)) {
+                    segment.entries.put(key, value);
+                } else {
+                    final Iterator<Map.Entry<K, V>> iterator = segment.entries.entrySet().iterator();
+                    final K victim = iterator.next().getKey();
+                    if (sketch.frequency(key) > sketch.frequency(victim)) {
+                        iterator.remove();
+                        segment.entries.put(key, value);
+                        evictions.increment();
+                    } else {
+                        rejections.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    public void invalidate(final K key) {
+        if (maximumSize > 0) {
+            final Segment<K, V> segment = segmentFor(key);
+            synchronized (segment) {
+                segment.entries.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        for (final Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (final Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of entries evicted to admit more frequently used ones
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The number of entries that were not admitted because the cache was full of more frequently used entries
+     */
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    private static final class Segment<K, V> {
+        private final int capacity;
+        //Access-ordered: the first entry is the least recently used
+        private final Map<K, V> entries;
+
+        private Segment(final int capacity) {
+            this.capacity = Math.max(1, capacity);
+            entries = new LinkedHashMap<>(16, 0.75f, true);
+        }
+
+        private synchronized V get(final K key) {
+            return entries.get(key);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.sifrproject.utils.cache;
+
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Storage of the cache entries shared between runs (see {@link TwoTierCache} for the in-process tier in front of it).
+ * The values are binary (encoded by a {@link CacheCodec}) or counters, the getters return null for keys that are not
+ * cached.
+ */
+public interface CacheBackend extends Closeable {
+
+    byte[] getBinary(String key);
+
+    void putBinary(String key, byte[] value);
+
+    /**
+     * @return The cached binary values, the keys that are not cached are absent from the map
+     */
+    Map<String, byte[]> getBinaries(Collection<String> keys);
+
+    default void putBinaries(final Map<String, byte[]> values) {
+        putBinaries(values, 0L);
+    }
+
+    /**
+     * Batch version of putBinary with an expiry, for the backends that support it (the others keep the values until
+     * they are invalidated)
+     *
+     * @param ttlSeconds The time to live of the values in seconds, 0 for no expiry
+     */
+    void putBinaries(Map<String, byte[]> values, long ttlSeconds);
+
+    /**
+     * Delete all the entries whose key starts with the prefix, e.g. the entries of a generation of a namespace
+     */
+    void deletePrefix(String prefix);
+
+    /**
+     * @return The value of a counter, 0 if it was never incremented
+     */
+    long getCounter(String key);
+
+    /**
+     * Atomically increment a counter
+     *
+     * @return The new value of the counter
+     */
+    default long incrementCounter(final String key) {
+        return incrementCounter(key, 1L);
+    }
+
+    /**
+     * Atomically add a value to a counter
+     *
+     * @return The new value of the counter
+     */
+    long incrementCounter(String key, long delta);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,57 @@
+package org.sifrproject.utils.cache;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.JedisPool;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import static org.sifrproject.configuration.ConfigurationConstants.*;
+
+/**
+ * Creates the cache backend selected by the configuration: redis (default) or the embedded local store
+ */
+public final class CacheBackendFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheBackendFactory.class);
+
+    private static final String REDIS_BACKEND = "redis";
+    private static final String EMBEDDED_BACKEND = "embedded";
+
+    private CacheBackendFactory() {
+    }
+
+    /**
+     * @param properties The configuration properties
+     * @return The cache backend, the program exits if the configured backend cannot be opened
+     */
+    public static CacheBackend create(final Properties properties) {
+        final String backend = properties.getProperty(CONFIG_CACHE_BACKEND, REDIS_BACKEND).trim();
+        CacheBackend cacheBackend = null;
+        if (backend.equals(EMBEDDED_BACKEND)) {
+            final String cachePath = properties.getProperty(CONFIG_CACHE_EMBEDDED_PATH);
+            if (cachePath == null) {
+                logger.error("{} must be set to use the embedded cache backend", CONFIG_CACHE_EMBEDDED_PATH);
+                System.exit(1);
+            }
+            try {
+                cacheBackend = new EmbeddedCacheBackend(Paths.get(cachePath.trim()));
+            } catch (final IOException e) {
+                logger.error("Cannot open the embedded cache: {}", e.getLocalizedMessage());
+                System.exit(1);
+            }
+        } else if (backend.equals(REDIS_BACKEND)) {
+            cacheBackend = new RedisCacheBackend(new JedisPool(
+                    properties.getProperty(CONFIG_REDIS_HOST),
+                    Integer.valueOf(properties.getProperty(CONFIG_REDIS_PORT))
+            ));
+        } else {
+            logger.error("Unknown cache backend: {}", backend);
+            System.exit(1);
+        }
+        return cacheBackend;
+    }
+}
@@ -0,0 +1,21 @@
+package org.sifrproject.utils.cache;
+
+
+/**
+ * Binary encoding of the values of a kind of cache entry (see {@link TwoTierCache#get(String, CacheCodec)}). The
+ * decoded values are kept in the near cache and shared, they must be immutable.
+ *
+ * @param <T> The type of the values
+ */
+public interface CacheCodec<T> {
+
+    /**
+     * @return The name and version of the encoding, part of the cache keys: entries written with another encoding are
+     * never decoded
+     */
+    String getFormat();
+
+    byte[] encode(T value);
+
+    T decode(byte[] bytes);
+}
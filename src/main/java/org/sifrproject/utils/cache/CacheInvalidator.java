@@ -0,0 +1,47 @@
+package org.sifrproject.utils.cache;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Command invalidating the cache entries of namespaces, e.g. of one ontology after its source file was edited in
+ * place, without touching the entries of the other ontologies or the UMLS results (unlike FLUSHALL).
+ * The namespaces are the ontology names, {@code <source>_<target>_mappings} for the mappings, umls and scores. The
+ * cache backend is read from a configuration file of the processing commands.
+ */
+public final class CacheInvalidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidator.class);
+
+    private CacheInvalidator() {
+    }
+
+    private static void syntax() {
+        logger.error("Syntax: command [configuration file] [namespace]...");
+        System.exit(1);
+    }
+
+    public static void main(final String... args) throws IOException {
+        if (args.length < 2) {
+            syntax();
+        }
+        final Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(Paths.get(args[0]))) {
+            properties.load(inputStream);
+        }
+        final TwoTierCache cache = new TwoTierCache(CacheBackendFactory.create(properties), 0);
+        for (final String namespace : Arrays.asList(args).subList(1, args.length)) {
+            final long generation = cache.invalidateNamespace(namespace);
+            logger.info("Invalidated namespace {}, now at generation {}", namespace, generation);
+        }
+        cache.close();
+    }
+}
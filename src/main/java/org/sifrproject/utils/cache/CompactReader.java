@@ -0,0 +1,43 @@
+package org.sifrproject.utils.cache;
+
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cursor over the bytes written by a {@link CompactWriter}, decoding in place without intermediate buffers
+ */
+public final class CompactReader {
+
+    private final byte[] bytes;
+    private int position;
+
+    public CompactReader(final byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public int readByte() {
+        final int value = bytes[position];
+        position++;
+        return value;
+    }
+
+    public int readVarInt() {
+        int value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = bytes[position];
+            position++;
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while (current < 0);
+        return value;
+    }
+
+    public String readString() {
+        final int length = readVarInt();
+        final String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+}
@@ -0,0 +1,67 @@
+package org.sifrproject.utils.cache;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte array for the {@link CacheCodec}s: unsigned ints are written as varints (7 bits per byte, 1 byte
+ * below 128, 4 bytes for CUIs), strings as their varint length followed by their UTF-8 bytes
+ */
+public final class CompactWriter {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private byte[] bytes;
+    private int size;
+
+    public CompactWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CompactWriter(final int capacity) {
+        bytes = new byte[Math.max(capacity, 1)];
+    }
+
+    private void ensureCapacity(final int additionalBytes) {
+        if ((size + additionalBytes) > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additionalBytes));
+        }
+    }
+
+    public CompactWriter writeByte(final int value) {
+        ensureCapacity(1);
+        bytes[size] = (byte) value;
+        size++;
+        return this;
+    }
+
+    /**
+     * @param value A non-negative int
+     */
+    public CompactWriter writeVarInt(final int value) {
+        ensureCapacity(5);
+        int remainder = value;
+        while ((remainder & ~0x7F) != 0) {
+            bytes[size] = (byte) ((remainder & 0x7F) | 0x80);
+            size++;
+            remainder >>>= 7;
+        }
+        bytes[size] = (byte) remainder;
+        size++;
+        return this;
+    }
+
+    public CompactWriter writeString(final String value) {
+        final byte[] stringBytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(stringBytes.length);
+        ensureCapacity(stringBytes.length);
+        System.arraycopy(stringBytes, 0, bytes, size, stringBytes.length);
+        size += stringBytes.length;
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+}
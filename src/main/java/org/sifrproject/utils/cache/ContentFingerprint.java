@@ -0,0 +1,95 @@
+package org.sifrproject.utils.cache;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Short hash identifying the version of an input ontology, used to scope its cache namespace: the digest of the file
+ * content for files, of the names, sizes and modification dates of the files for TDB directories, and of the URL
+ * itself for remote ontologies.
+ */
+public final class ContentFingerprint {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentFingerprint.class);
+
+    private static final Pattern URL_PATTERN = Pattern.compile("[^:]{2,6}:.*");
+    private static final int FINGERPRINT_LENGTH = 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private ContentFingerprint() {
+    }
+
+    /**
+     * @param modelURI The file, TDB directory or URL of the ontology
+     * @return The fingerprint of the current version of the ontology
+     */
+    public static String of(final String modelURI) {
+        String fingerprint;
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("MD5");
+            if (URL_PATTERN.matcher(modelURI).matches()) {
+                digest.update(modelURI.getBytes(StandardCharsets.UTF_8));
+            } else {
+                final Path path = Paths.get(modelURI);
+                if (Files.isDirectory(path)) {
+                    digestDirectory(path, digest);
+                } else {
+                    digestFile(path, digest);
+                }
+            }
+            fingerprint = toHex(digest.digest());
+        } catch (final IOException | NoSuchAlgorithmException e) {
+            logger.error("Cannot fingerprint {}, its cache entries will not be reused: {}", modelURI, e.getLocalizedMessage());
+            fingerprint = unique();
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @return A fingerprint that is never reused, for models built in memory during the run
+     */
+    public static String unique() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, FINGERPRINT_LENGTH);
+    }
+
+    private static void digestFile(final Path path, final MessageDigest digest) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            int read = inputStream.read(buffer);
+            while (read >= 0) {
+                digest.update(buffer, 0, read);
+                read = inputStream.read(buffer);
+            }
+        }
+    }
+
+    private static void digestDirectory(final Path directory, final MessageDigest digest) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (final Path file : (Iterable<Path>) files.sorted()::iterator) {
+                final String entry = file.getFileName() + "|" + Files.size(file) + "|" + Files.getLastModifiedTime(file).toMillis() + "\n";
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder hex = new StringBuilder();
+        for (final byte value : bytes) {
+            hex.append(String.format("%02x", value));
+        }
+        return hex.substring(0, FINGERPRINT_LENGTH);
+    }
+}
@@ -0,0 +1,385 @@
+package org.sifrproject.utils.cache;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache backend storing the entries in a local directory, for the runs that have no redis server at hand. The entries
+ * persist between runs of the same machine.
+ * <p>
+ * The storage is log-structured: every write appends a record (type, key, value) to the current segment, a
+ * memory-mapped file of {@link #SEGMENT_SIZE} bytes, and a new segment is started when it is full. The location of the
+ * latest record of each key is kept in an in-memory index, rebuilt by scanning the segments when the directory is
+ * opened. Overwritten and deleted records are garbage (a deletion appends a record that removes the keys of a prefix
+ * from the index), the live records are copied to new segments at opening when the garbage exceeds half of the log
+ * (the old segments are deleted once copied, an interrupted compaction only leaves duplicates).
+ * <p>
+ * Writes are serialized, reads are lock-free absolute reads of the mapped segments. A directory can only be opened by
+ * one process at a time.
+ */
+public class EmbeddedCacheBackend implements CacheBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedCacheBackend.class);
+
+    static final int SEGMENT_SIZE = 1 << 26;
+
+    private static final int MAGIC = 0x53494652;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int RECORD_HEADER_SIZE = 1 + (2 * Integer.BYTES);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String LOCK_FILE = "lock";
+
+    /*
+     * Record types, a 0 type marks the end of the records of a segment (the segments are zero-filled when created).
+     * The types 1 to 3 (lists, strings and hashes) are no longer written, their records are still recognized when
+     * scanning the segments and are dropped by the compaction.
+     */
+    private static final byte FIRST_TYPE = 1;
+    private static final byte COUNTER = 4;
+    private static final byte BINARY = 5;
+    /**
+     * Deletion of the keys that start with the key of the record, when the record is scanned
+     */
+    private static final byte DELETION = 6;
+
+    private final Path directory;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    /**
+     * The mapped segments, by segment number
+     */
+    private final ConcurrentMap<Integer, MappedByteBuffer> segments;
+    /**
+     * Location of the latest record of each key: segment number in the high int, offset in the low int
+     */
+    private final ConcurrentMap<String, Long> locations;
+
+    private int currentSegment;
+    private int writePosition;
+    private long logBytes;
+    private long liveBytes;
+
+    /**
+     * @param directory The directory of the cache, created if needed
+     * @throws IOException If the directory cannot be opened, or is used by another process
+     */
+    public EmbeddedCacheBackend(final Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Cache directory already in use by another process: " + directory);
+        }
+        segments = new ConcurrentHashMap<>();
+        locations = new ConcurrentHashMap<>();
+        currentSegment = -1;
+
+        final List<Integer> segmentNumbers = listSegments();
+        for (final int segment : segmentNumbers) {
+            loadSegment(segment);
+        }
+        logger.info("Embedded cache {}: {} keys in {} segments", directory, locations.size(), segmentNumbers.size());
+        if ((segmentNumbers.size() > 1) && ((liveBytes * 2) < logBytes)) {
+            compact(segmentNumbers);
+        }
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        final List<Integer> segmentNumbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (final Path path : stream) {
+                final String fileName = path.getFileName().toString();
+                segmentNumbers.add(Integer.valueOf(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(segmentNumbers);
+        return segmentNumbers;
+    }
+
+    private Path segmentPath(final int segment) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static MappedByteBuffer map(final Path path, final long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Index the records of an existing segment, the scan stops at the first record that is not complete (e.g. after a
+     * crash), the following records of the segment are overwritten by the next writes
+     */
+    private void loadSegment(final int segment) throws IOException {
+        final Path path = segmentPath(segment);
+        final MappedByteBuffer buffer = map(path, Files.size(path));
+        if ((buffer.capacity() < SEGMENT_HEADER_SIZE) || (buffer.getInt(0) != MAGIC) || (buffer.getInt(Integer.BYTES) != VERSION)) {
+            throw new IOException("Not a cache segment (or unsupported version): " + path);
+        }
+        segments.put(segment, buffer);
+        int position = SEGMENT_HEADER_SIZE;
+        int recordSize = recordSize(buffer, position);
+        while (recordSize > 0) {
+            index(readKey(buffer, position), buffer.get(position), segment, position, recordSize);
+            position += recordSize;
+            recordSize = recordSize(buffer, position);
+        }
+        currentSegment = segment;
+        writePosition = position;
+    }
+
+    /**
+     * @return The size of the record at the position, or 0 if there is no complete record there
+     */
+    private static int recordSize(final ByteBuffer buffer, final int position) {
+        int size = 0;
+        if ((position + RECORD_HEADER_SIZE) <= buffer.capacity()) {
+            final byte type = buffer.get(position);
+            final int keyLength = buffer.getInt(position + 1);
+            if ((type >= FIRST_TYPE) && (type <= DELETION) && (keyLength >= 0) && (keyLength <= (buffer.capacity() - position - RECORD_HEADER_SIZE))) {
+                final int valueLength = buffer.getInt(position + 1 + Integer.BYTES + keyLength);
+                final long candidateSize = (long) RECORD_HEADER_SIZE + keyLength + valueLength;
+                if ((valueLength >= 0) && ((position + candidateSize) <= buffer.capacity())) {
+                    size = (int) candidateSize;
+                }
+            }
+        }
+        return size;
+    }
+
+    private void index(final String key, final byte type, final int segment, final int position, final int recordSize) {
+        if (type == DELETION) {
+            unindexPrefix(key);
+        } else {
+            final Long previous = locations.put(key, ((long) segment << Integer.SIZE) | position);
+            if (previous != null) {
+                liveBytes -= recordSize(previous);
+            }
+            liveBytes += recordSize;
+        }
+        logBytes += recordSize;
+    }
+
+    /**
+     * Remove the keys that start with the prefix from the index, their records become garbage
+     */
+    private void unindexPrefix(final String prefix) {
+        final Iterator<Map.Entry<String, Long>> iterator = locations.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Long> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                liveBytes -= recordSize(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    private int recordSize(final long location) {
+        return recordSize(segments.get((int) (location >>> Integer.SIZE)), (int) location);
+    }
+
+    private static String readKey(final ByteBuffer buffer, final int position) {
+        final int keyLength = buffer.getInt(position + 1);
+        return readString(buffer, position + 1 + Integer.BYTES, keyLength);
+    }
+
+    private static String readString(final ByteBuffer buffer, final int position, final int length) {
+        final byte[] bytes = new byte[length];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copy the live records to new segments and delete the old ones
+     */
+    private void compact(final Iterable<Integer> oldSegments) throws IOException {
+        logger.info("Compacting embedded cache {}: {} live bytes out of {}", directory, liveBytes, logBytes);
+        final Map<String, Long> liveLocations = new HashMap<>(locations);
+        locations.clear();
+        startSegment(currentSegment + 1, SEGMENT_SIZE);
+        logBytes = 0;
+        liveBytes = 0;
+        for (final Map.Entry<String, Long> entry : liveLocations.entrySet()) {
+            final long location = entry.getValue();
+            final ByteBuffer buffer = segments.get((int) (location >>> Integer.SIZE));
+            final int position = (int) location;
+            final byte type = buffer.get(position);
+            if ((type == COUNTER) || (type == BINARY)) {
+                final ByteBuffer record = buffer.duplicate();
+                record.position(position);
+                record.limit(position + recordSize(buffer, position));
+                append(entry.getKey(), record.slice());
+            }
+        }
+        for (final int segment : oldSegments) {
+            segments.remove(segment);
+            Files.delete(segmentPath(segment));
+        }
+        flush();
+    }
+
+    private void startSegment(final int segment, final int size) throws IOException {
+        final MappedByteBuffer buffer = map(segmentPath(segment), size);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(Integer.BYTES, VERSION);
+        segments.put(segment, buffer);
+        currentSegment = segment;
+        writePosition = SEGMENT_HEADER_SIZE;
+    }
+
+    private static ByteBuffer encodeRecord(final byte type, final String key, final byte[] value) {
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + keyBytes.length + value.length);
+        record.put(type);
+        record.putInt(keyBytes.length);
+        record.put(keyBytes);
+        record.putInt(value.length);
+        record.put(value);
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Append an encoded record and index it. The type is written last, a record is thus only visible to a scan once
+     * complete.
+     */
+    private synchronized void append(final String key, final ByteBuffer record) {
+        final int recordSize = record.remaining();
+        try {
+            if (currentSegment < 0) {
+                startSegment(0, Math.max(SEGMENT_SIZE, SEGMENT_HEADER_SIZE + recordSize));
+            } else if ((writePosition + recordSize) > segments.get(currentSegment).capacity()) {
+                startSegment(currentSegment + 1, Math.max(SEGMENT_SIZE, SEGMENT_HEADER_SIZE + recordSize));
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException("Cannot create a new segment in " + directory, e);
+        }
+        final ByteBuffer segment = segments.get(currentSegment);
+        final ByteBuffer target = segment.duplicate();
+        target.position(writePosition + 1);
+        final ByteBuffer source = record.duplicate();
+        final byte type = source.get();
+        target.put(source);
+        segment.put(writePosition, type);
+        index(key, type, currentSegment, writePosition, recordSize);
+        writePosition += recordSize;
+    }
+
+    /**
+     * @return A read-only view of the value of the key, positioned at the start of the value, or null if the key is
+     * not cached with the expected type
+     */
+    private ByteBuffer value(final String key, final byte type) {
+        ByteBuffer value = null;
+        final Long location = locations.get(key);
+        if (location != null) {
+            final ByteBuffer buffer = segments.get((int) (location >>> Integer.SIZE));
+            final int position = (int) (long) location;
+            if (buffer.get(position) == type) {
+                final int valueOffset = position + 1 + Integer.BYTES + buffer.getInt(position + 1);
+                value = buffer.asReadOnlyBuffer();
+                value.position(valueOffset + Integer.BYTES);
+                value.limit(valueOffset + Integer.BYTES + buffer.getInt(valueOffset));
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public byte[] getBinary(final String key) {
+        byte[] bytes = null;
+        final ByteBuffer value = value(key, BINARY);
+        if (value != null) {
+            bytes = new byte[value.remaining()];
+            value.get(bytes);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void putBinary(final String key, final byte[] value) {
+        append(key, encodeRecord(BINARY, key, value));
+    }
+
+    @Override
+    public Map<String, byte[]> getBinaries(final Collection<String> keys) {
+        final Map<String, byte[]> values = new HashMap<>();
+        for (final String key : keys) {
+            final byte[] value = getBinary(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * The embedded store has no expiry, the time to live is ignored
+     */
+    @Override
+    public void putBinaries(final Map<String, byte[]> values, final long ttlSeconds) {
+        for (final Map.Entry<String, byte[]> entry : values.entrySet()) {
+            putBinary(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * The deletion is recorded in the log, the records of the keys are dropped by the next compaction
+     */
+    @Override
+    public void deletePrefix(final String prefix) {
+        append(prefix, encodeRecord(DELETION, prefix, new byte[0]));
+    }
+
+    @Override
+    public long getCounter(final String key) {
+        final ByteBuffer value = value(key, COUNTER);
+        return (value == null) ? 0L : value.getLong();
+    }
+
+    @Override
+    public synchronized long incrementCounter(final String key, final long delta) {
+        final long counter = getCounter(key) + delta;
+        append(key, encodeRecord(COUNTER, key, ByteBuffer.allocate(Long.BYTES).putLong(counter).array()));
+        return counter;
+    }
+
+    private void flush() {
+        for (final MappedByteBuffer segment : segments.values()) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (final IOException e) {
+            logger.error("Cannot release the lock of {}: {}", directory, e.getLocalizedMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.sifrproject.utils.cache;
+
+
+/**
+ * Approximate access frequencies of keys (count-min sketch of 4-bit counters packed in longs). All the counters are
+ * halved when the number of recorded accesses reaches ten times the width of the sketch, so that the frequencies
+ * reflect the recent accesses. Updates are not atomic: concurrent increments may be lost, which only makes the
+ * estimates a little lower.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int COUNTERS_PER_LONG = 16;
+    private static final long MAX_COUNT = 15L;
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(final int expectedSize) {
+        final int width = Integer.highestOneBit(Math.max(COUNTERS_PER_LONG, expectedSize) - 1) << 1;
+        table = new long[width / COUNTERS_PER_LONG * DEPTH];
+        tableMask = (table.length / DEPTH) - 1;
+        sampleSize = width * 10;
+    }
+
+    int frequency(final Object key) {
+        final int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, (int) ((table[index(hash, row)] >>> shift(hash, row)) & MAX_COUNT));
+        }
+        return frequency;
+    }
+
+    void increment(final Object key) {
+        final int hash = spread(key.hashCode());
+        boolean incremented = false;
+        for (int row = 0; row < DEPTH; row++) {
+            final int index = index(hash, row);
+            final int shift = shift(hash, row);
+            if (((table[index] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                incremented = true;
+            }
+        }
+        if (incremented) {
+            additions++;
+            if (additions >= sampleSize) {
+                reset();
+            }
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int index(final int hash, final int row) {
+        final long rowHash = (hash + SEEDS[row]) * SEEDS[row];
+        return (row * (tableMask + 1)) + ((int) (rowHash >>> Integer.SIZE) & tableMask);
+    }
+
+    private static int shift(final int hash, final int row) {
+        return (((hash >>> (row * 4)) & (COUNTERS_PER_LONG - 1)) << 2);
+    }
+
+    private static int spread(final int hashCode) {
+        final int hash = hashCode * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,122 @@
+package org.sifrproject.utils.cache;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Fixed-size cache keys for entries keyed by arbitrarily long texts (e.g. labels): the parts of the key are hashed with
+ * the 128-bit MurmurHash3 (x64 variant) and encoded in 22 url-safe base64 characters. At 128 bits collisions are
+ * negligible for any realistic number of entries.
+ */
+public final class HashedKeys {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final int BLOCK_SIZE = 16;
+    private static final char SEPARATOR = '\u0000';
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private HashedKeys() {
+    }
+
+    /**
+     * @param parts The parts of the key, joined by a separator that does not occur in texts
+     * @return The hashed key
+     */
+    public static String of(final String... parts) {
+        return ENCODER.encodeToString(hash128(String.join(String.valueOf(SEPARATOR), parts).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @SuppressWarnings({"MagicNumber", "OverlyLongMethod"})
+    static byte[] hash128(final byte[] data) {
+        long h1 = 0L;
+        long h2 = 0L;
+        final int blocks = data.length / BLOCK_SIZE;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = getLong(data, i * BLOCK_SIZE);
+            long k2 = getLong(data, (i * BLOCK_SIZE) + Long.BYTES);
+
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = (h1 * 5) + 0x52dce729;
+
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = (h2 * 5) + 0x38495ab5;
+        }
+
+        final int tail = blocks * BLOCK_SIZE;
+        long k1 = 0L;
+        long k2 = 0L;
+        for (int i = data.length - tail - 1; i >= Long.BYTES; i--) {
+            k2 ^= (data[tail + i] & 0xFFL) << ((i - Long.BYTES) * Byte.SIZE);
+        }
+        for (int i = Math.min(data.length - tail, Long.BYTES) - 1; i >= 0; i--) {
+            k1 ^= (data[tail + i] & 0xFFL) << (i * Byte.SIZE);
+        }
+        if (k2 != 0L) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        if (k1 != 0L) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+
+        h1 ^= data.length;
+        h2 ^= data.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = mix(h1);
+        h2 = mix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        final byte[] hash = new byte[BLOCK_SIZE];
+        putLong(hash, 0, h1);
+        putLong(hash, Long.BYTES, h2);
+        return hash;
+    }
+
+    @SuppressWarnings("MagicNumber")
+    private static long mix(final long value) {
+        long mixed = value;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xff51afd7ed558ccdL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xc4ceb9fe1a85ec53L;
+        mixed ^= mixed >>> 33;
+        return mixed;
+    }
+
+    /**
+     * Little-endian read, as in the reference implementation
+     */
+    private static long getLong(final byte[] data, final int offset) {
+        long value = 0L;
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            value = (value << Byte.SIZE) | (data[offset + i] & 0xFFL);
+        }
+        return value;
+    }
+
+    private static void putLong(final byte[] data, final int offset, final long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            data[offset + i] = (byte) (value >>> (i * Byte.SIZE));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.sifrproject.utils.cache;
+
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Cache backend storing the entries in a redis server, shared by all the runs and machines using the server. Batch
+ * operations are sent in pipelines of {@link #PIPELINE_SIZE} commands, i.e. one round trip per pipeline.
+ */
+public class RedisCacheBackend implements CacheBackend {
+
+    /**
+     * Maximum number of commands sent in a single pipeline
+     */
+    private static final int PIPELINE_SIZE = 1000;
+
+    private final JedisPool jedisPool;
+
+    public RedisCacheBackend(final JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    @Override
+    public byte[] getBinary(final String key) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return jedis.get(binaryKey(key));
+        }
+    }
+
+    @Override
+    public void putBinary(final String key, final byte[] value) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.set(binaryKey(key), value);
+        }
+    }
+
+    @Override
+    public Map<String, byte[]> getBinaries(final Collection<String> keys) {
+        final Map<String, byte[]> values = new HashMap<>();
+        final List<String> keyList = new ArrayList<>(new LinkedHashSet<>(keys));
+        try (Jedis jedis = jedisPool.getResource()) {
+            for (int from = 0; from < keyList.size(); from += PIPELINE_SIZE) {
+                final List<String> chunk = keyList.subList(from, Math.min(from + PIPELINE_SIZE, keyList.size()));
+                final Pipeline pipeline = jedis.pipelined();
+                final List<Response<byte[]>> responses = new ArrayList<>(chunk.size());
+                for (final String key : chunk) {
+                    responses.add(pipeline.get(binaryKey(key)));
+                }
+                pipeline.sync();
+                for (int i = 0; i < chunk.size(); i++) {
+                    final byte[] value = responses.get(i).get();
+                    if (value != null) {
+                        values.put(chunk.get(i), value);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void putBinaries(final Map<String, byte[]> values, final long ttlSeconds) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            int pending = 0;
+            for (final Map.Entry<String, byte[]> entry : values.entrySet()) {
+                if (ttlSeconds > 0L) {
+                    pipeline.setex(binaryKey(entry.getKey()), (int) Math.min(ttlSeconds, Integer.MAX_VALUE), entry.getValue());
+                } else {
+                    pipeline.set(binaryKey(entry.getKey()), entry.getValue());
+                }
+                pending++;
+                if (pending == PIPELINE_SIZE) {
+                    pipeline.sync();
+                    pipeline = jedis.pipelined();
+                    pending = 0;
+                }
+            }
+            pipeline.sync();
+        }
+    }
+
+    private static byte[] binaryKey(final String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The keys are listed with SCAN, in batches of about {@link #PIPELINE_SIZE} keys deleted with a single DEL, so that
+     * the server is never blocked by a listing of the whole key space
+     */
+    @Override
+    public void deletePrefix(final String prefix) {
+        final ScanParams scanParams = new ScanParams().match(escapePattern(prefix) + "*").count(PIPELINE_SIZE);
+        try (Jedis jedis = jedisPool.getResource()) {
+            String cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                final ScanResult<String> scanResult = jedis.scan(cursor, scanParams);
+                final List<String> keys = scanResult.getResult();
+                if (!keys.isEmpty()) {
+                    jedis.del(keys.toArray(new String[keys.size()]));
+                }
+                cursor = scanResult.getStringCursor();
+            } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        }
+    }
+
+    private static String escapePattern(final String prefix) {
+        final StringBuilder pattern = new StringBuilder(prefix.length());
+        for (final char character : prefix.toCharArray()) {
+            if ((character == '*') || (character == '?') || (character == '[') || (character == ']') || (character == '\\')) {
+                pattern.append('\\');
+            }
+            pattern.append(character);
+        }
+        return pattern.toString();
+    }
+
+    @Override
+    public long getCounter(final String key) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            final String value = jedis.get(key);
+            return (value == null) ? 0L : Long.valueOf(value);
+        }
+    }
+
+    @Override
+    public long incrementCounter(final String key, final long delta) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return jedis.incrBy(key, delta);
+        }
+    }
+
+    @Override
+    public void close() {
+        jedisPool.close();
+    }
+}
@@ -0,0 +1,251 @@
+package org.sifrproject.utils.cache;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.sifrproject.configuration.ConfigurationConstants.CONFIG_NEAR_CACHE_SIZE;
+
+/**
+ * Cache shared by the delegates, made of a bounded in-process near cache (see {@link BoundedCache}) in front of a
+ * {@link CacheBackend} (redis, or the embedded local store). Lookups are answered by the near cache when possible,
+ * otherwise by the backend, in which case the value is kept in the near cache; writes go to both tiers. Hot keys thus
+ * stay in the JVM and only cost a backend lookup on their first access.
+ * <p>
+ * The values are cached in a compact binary encoding (see {@link CacheCodec}), the near cache holds the decoded
+ * values: a value is only decoded when read from the backend. The values returned are shared, callers must copy them
+ * before modifying them. The getters return null when the key is in neither tier.
+ * <p>
+ * The keys are scoped by a namespace (see {@link #inNamespace(String, String)}): the name of the ontology (or of the
+ * resource, e.g. umls), the version of its content and the generation of the namespace. Incrementing the generation
+ * counter of a namespace in the backend (see {@link CacheInvalidator}) invalidates all its entries at once, the
+ * unreachable entries are left to the eviction policy of redis (the embedded store keeps them until its directory is
+ * deleted) unless they are deleted (see {@link #deleteEntries()}).
+ */
+public class TwoTierCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoTierCache.class);
+
+    public static final int DEFAULT_NEAR_CACHE_SIZE = 100000;
+
+    private static final String GENERATION_PREFIX = "generation:";
+
+    private final CacheBackend backend;
+    private final BoundedCache<String, Object> nearCache;
+    private final String keyPrefix;
+
+    private final LongAdder remoteHits;
+    private final LongAdder remoteMisses;
+
+    /**
+     * @param backend       The storage shared between runs
+     * @param nearCacheSize The maximum number of entries kept in memory, 0 to disable the near cache
+     */
+    public TwoTierCache(final CacheBackend backend, final int nearCacheSize) {
+        this.backend = backend;
+        nearCache = new BoundedCache<>(nearCacheSize);
+        keyPrefix = "";
+        remoteHits = new LongAdder();
+        remoteMisses = new LongAdder();
+    }
+
+    private TwoTierCache(final TwoTierCache parent, final String keyPrefix) {
+        backend = parent.backend;
+        nearCache = parent.nearCache;
+        this.keyPrefix = keyPrefix;
+        remoteHits = parent.remoteHits;
+        remoteMisses = parent.remoteMisses;
+    }
+
+    /**
+     * @return The cache, with the backend selected by the configuration (see {@link CacheBackendFactory})
+     */
+    public static TwoTierCache fromProperties(final Properties properties) {
+        final int nearCacheSize = Integer.valueOf(properties.getProperty(CONFIG_NEAR_CACHE_SIZE, String.valueOf(DEFAULT_NEAR_CACHE_SIZE)));
+        logger.info("Near cache size: {} entries", nearCacheSize);
+        return new TwoTierCache(CacheBackendFactory.create(properties), nearCacheSize);
+    }
+
+    /**
+     * View of the cache whose keys are scoped by a namespace, sharing the near cache, the backend and the statistics
+     *
+     * @param name    The name of the namespace, e.g. the name of the ontology
+     * @param version The version of the content cached in the namespace, e.g. a {@link ContentFingerprint}
+     * @return The cache of the namespace, at its current generation
+     */
+    public TwoTierCache inNamespace(final String name, final String version) {
+        final long generation = backend.getCounter(GENERATION_PREFIX + name);
+        logger.info("Cache namespace {}, version {}, generation {}", name, version, generation);
+        return new TwoTierCache(this, name + "@" + version + "#" + generation + ":");
+    }
+
+    /**
+     * Invalidate all the entries of a namespace, whatever their version, by incrementing its generation. The views
+     * opened before the invalidation keep using the previous generation.
+     *
+     * @param name The name of the namespace
+     * @return The new generation of the namespace
+     */
+    public long invalidateNamespace(final String name) {
+        final long generation = backend.incrementCounter(GENERATION_PREFIX + name);
+        nearCache.clear();
+        return generation;
+    }
+
+    /**
+     * Delete the entries of the view from the backend and clear the near cache, e.g. the entries of a generation of a
+     * namespace once it is invalidated
+     *
+     * @throws IllegalStateException If the view is not scoped by a namespace
+     */
+    public void deleteEntries() {
+        if (keyPrefix.isEmpty()) {
+            throw new IllegalStateException("Only the entries of a namespace can be deleted");
+        }
+        backend.deletePrefix(keyPrefix);
+        nearCache.clear();
+    }
+
+    private String scoped(final String key) {
+        return keyPrefix + key;
+    }
+
+    private String scoped(final CacheCodec<?> codec, final String key) {
+        return keyPrefix + codec.getFormat() + ":" + key;
+    }
+
+    /**
+     * @return The cached value decoded by the codec, or null if the key is not cached with the format of the codec
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(final String key, final CacheCodec<T> codec) {
+        final String scopedKey = scoped(codec, key);
+        T value = (T) nearCache.get(scopedKey);
+        if (value == null) {
+            final byte[] bytes = backend.getBinary(scopedKey);
+            if (bytes != null) {
+                value = codec.decode(bytes);
+            }
+            remoteLookup(scopedKey, value);
+        }
+        return value;
+    }
+
+    /**
+     * Cache a value in its binary encoding, the value itself is kept in the near cache and must not be modified
+     * afterwards
+     */
+    public <T> void put(final String key, final T value, final CacheCodec<T> codec) {
+        final String scopedKey = scoped(codec, key);
+        backend.putBinary(scopedKey, codec.encode(value));
+        nearCache.put(scopedKey, value);
+    }
+
+    /**
+     * Batch version of get, the keys missing from the near cache are read from the backend in a single batch
+     *
+     * @return The cached values, the keys that are not cached are absent from the map
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getAll(final Collection<String> keys, final CacheCodec<T> codec) {
+        final Map<String, T> values = new HashMap<>();
+        final Map<String, String> remoteKeys = new HashMap<>();
+        for (final String key : keys) {
+            final String scopedKey = scoped(codec, key);
+            final T nearValue = (T) nearCache.get(scopedKey);
+            if (nearValue == null) {
+                remoteKeys.put(scopedKey, key);
+            } else {
+                values.put(key, nearValue);
+            }
+        }
+        if (!remoteKeys.isEmpty()) {
+            final Map<String, byte[]> remoteValues = backend.getBinaries(remoteKeys.keySet());
+            for (final Map.Entry<String, String> remoteKey : remoteKeys.entrySet()) {
+                final byte[] bytes = remoteValues.get(remoteKey.getKey());
+                T value = null;
+                if (bytes != null) {
+                    value = codec.decode(bytes);
+                    values.put(remoteKey.getValue(), value);
+                }
+                remoteLookup(remoteKey.getKey(), value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Batch version of put
+     */
+    public <T> void putAll(final Map<String, ? extends T> values, final CacheCodec<T> codec) {
+        putAll(values, codec, 0L);
+    }
+
+    /**
+     * Batch version of put, with an expiry of the values in the backend (see
+     * {@link CacheBackend#putBinaries(Map, long)})
+     *
+     * @param ttlSeconds The time to live of the values in seconds, 0 for no expiry
+     */
+    public <T> void putAll(final Map<String, ? extends T> values, final CacheCodec<T> codec, final long ttlSeconds) {
+        if (!values.isEmpty()) {
+            final Map<String, byte[]> encodedValues = new HashMap<>();
+            for (final Map.Entry<String, ? extends T> entry : values.entrySet()) {
+                final String scopedKey = scoped(codec, entry.getKey());
+                encodedValues.put(scopedKey, codec.encode(entry.getValue()));
+                nearCache.put(scopedKey, entry.getValue());
+            }
+            backend.putBinaries(encodedValues, ttlSeconds);
+        }
+    }
+
+    /**
+     * Atomically add a value to a counter of the namespace, e.g. to track the number of entries of a kind
+     *
+     * @return The new value of the counter, counters start at 0 in each generation of the namespace
+     */
+    public long incrementCounter(final String key, final long delta) {
+        return backend.incrementCounter(scoped(key), delta);
+    }
+
+    private void remoteLookup(final String scopedKey, final Object value) {
+        if (value == null) {
+            remoteMisses.increment();
+        } else {
+            remoteHits.increment();
+            nearCache.put(scopedKey, value);
+        }
+    }
+
+    public long getNearHitCount() {
+        return nearCache.getHitCount();
+    }
+
+    public long getNearMissCount() {
+        return nearCache.getMissCount();
+    }
+
+    public long getRemoteHitCount() {
+        return remoteHits.sum();
+    }
+
+    public long getRemoteMissCount() {
+        return remoteMisses.sum();
+    }
+
+    /**
+     * Release the backend, shared by all the namespaces of the cache
+     */
+    public void close() {
+        backend.close();
+    }
+
+    public void logStatistics() {
+        logger.info("Cache statistics: near {} hits / {} misses ({} entries, {} evictions, {} rejections), backend {} hits / {} misses",
+                getNearHitCount(), getNearMissCount(), nearCache.size(), nearCache.getEvictionCount(), nearCache.getRejectionCount(),
+                getRemoteHitCount(), getRemoteMissCount());
+    }
+}
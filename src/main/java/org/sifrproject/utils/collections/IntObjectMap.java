@@ -0,0 +1,136 @@
+package org.sifrproject.utils.collections;
+
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from ints to objects (linear probing), avoiding the boxing of the keys and the entry
+ * objects of a HashMap for the maps keyed by identifiers. Not thread-safe.
+ *
+ * @param <V> The type of the values, null values are not supported
+ */
+public final class IntObjectMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    public IntObjectMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of entries the map can hold without being resized
+     */
+    public IntObjectMap(final int expectedSize) {
+        final int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    private static int hash(final int key) {
+        final int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return The slot of the key, or of the empty slot where it would be inserted
+     */
+    private int slot(final int key) {
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while ((values[slot] != null) && (keys[slot] != key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(final int key) {
+        return (V) values[slot(key)];
+    }
+
+    public V getOrDefault(final int key, final V defaultValue) {
+        final V value = get(key);
+        return (value == null) ? defaultValue : value;
+    }
+
+    public boolean containsKey(final int key) {
+        return values[slot(key)] != null;
+    }
+
+    /**
+     * @return The previous value of the key, or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(final int key, final V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        final int slot = slot(key);
+        final V previous = (V) values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        if (previous == null) {
+            size++;
+            if (size > (keys.length * LOAD_FACTOR)) {
+                resize();
+            }
+        }
+        return previous;
+    }
+
+    private void resize() {
+        final int[] oldKeys = keys;
+        final Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                final int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The keys of the map, in no particular order
+     */
+    public int[] keys() {
+        final int[] mapKeys = new int[size];
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                mapKeys[count] = keys[i];
+                count++;
+            }
+        }
+        return mapKeys;
+    }
+
+    @Override
+    public String toString() {
+        final int[] mapKeys = keys();
+        Arrays.sort(mapKeys);
+        final StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < mapKeys.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(mapKeys[i]).append('=').append(get(mapKeys[i]));
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,177 @@
+package org.sifrproject.utils.collections;
+
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of ints kept sorted in a growable array, for the small sets of identifiers attached to each class (a handful of
+ * CUIs or TUIs): no boxing, one array per set and iteration in ascending order. Insertion is linear in the size of the
+ * set, larger sets should be built with {@link #addAll(int[], int)} and a single sort.
+ * <p>
+ * Not thread-safe. A set can be frozen once built (see {@link #freeze()}), e.g. before being shared through the cache,
+ * its modifiers then throw UnsupportedOperationException.
+ */
+public final class IntSet {
+
+    private static final int[] EMPTY = new int[0];
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private int[] values;
+    private int size;
+    private boolean frozen;
+
+    public IntSet() {
+        values = EMPTY;
+    }
+
+    public IntSet(final IntSet other) {
+        values = Arrays.copyOf(other.values, other.size);
+        size = other.size;
+    }
+
+    public static IntSet of(final int... values) {
+        final IntSet set = new IntSet();
+        set.addAll(values, values.length);
+        return set;
+    }
+
+    /**
+     * @param values Values sorted in strictly ascending order, the array is used by the set and must not be modified
+     *               afterwards
+     */
+    public static IntSet fromSortedArray(final int[] values) {
+        final IntSet set = new IntSet();
+        set.values = values;
+        set.size = values.length;
+        return set;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Frozen set");
+        }
+    }
+
+    private int indexOf(final int value) {
+        return Arrays.binarySearch(values, 0, size, value);
+    }
+
+    /**
+     * @return true if the value was not already in the set
+     */
+    public boolean add(final int value) {
+        checkNotFrozen();
+        final int index = indexOf(value);
+        final boolean added = index < 0;
+        if (added) {
+            final int insertion = -(index + 1);
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(DEFAULT_CAPACITY, size * 2));
+            }
+            System.arraycopy(values, insertion, values, insertion + 1, size - insertion);
+            values[insertion] = value;
+            size++;
+        }
+        return added;
+    }
+
+    public void addAll(final IntSet other) {
+        addAll(other.values, other.size);
+    }
+
+    /**
+     * Add the first count values of an array, in any order and with duplicates
+     */
+    public void addAll(final int[] newValues, final int count) {
+        checkNotFrozen();
+        if (count > 0) {
+            final int[] merged = Arrays.copyOf(values, size + count);
+            System.arraycopy(newValues, 0, merged, size, count);
+            Arrays.sort(merged);
+            int distinct = 0;
+            for (int i = 0; i < merged.length; i++) {
+                if ((i == 0) || (merged[i] != merged[distinct - 1])) {
+                    merged[distinct] = merged[i];
+                    distinct++;
+                }
+            }
+            values = merged;
+            size = distinct;
+        }
+    }
+
+    public boolean contains(final int value) {
+        return indexOf(value) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The value at the index, in ascending order
+     */
+    public int get(final int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return values[index];
+    }
+
+    public void clear() {
+        checkNotFrozen();
+        size = 0;
+    }
+
+    public void forEach(final IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(values[i]);
+        }
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Make the set read-only
+     *
+     * @return This set
+     */
+    public IntSet freeze() {
+        frozen = true;
+        return this;
+    }
+
+    @SuppressWarnings("all")
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IntSet)) return false;
+        final IntSet that = (IntSet) o;
+        if (size != that.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (values[i] != that.values[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = (31 * result) + values[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
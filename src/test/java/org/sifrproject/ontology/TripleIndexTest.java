@@ -0,0 +1,137 @@
+package org.sifrproject.ontology;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookups of an index extended with new relations: the ids of the base index must stay valid for its relations,
+ * which are shared, while the new subjects and objects are appended to the dictionaries
+ */
+public class TripleIndexTest extends TestCase {
+
+    private static final String LABEL = "http://www.w3.org/2004/02/skos/core#altLabel";
+    private static final String NOTATION = "http://www.w3.org/2004/02/skos/core#notation";
+    private static final String BROADER = "http://www.w3.org/2004/02/skos/core#broader";
+
+    private static final String HEART = "http://example.org/heart";
+    private static final String LUNG = "http://example.org/lung";
+    private static final String ORGAN = "http://example.org/organ";
+    private static final String LIVER = "http://example.org/liver";
+
+    private static final String COEUR_FR = "\"coeur\"@fr";
+    private static final String COEUR_EN = "\"coeur\"@en";
+    private static final String HEART_EN = "\"heart\"@en";
+    private static final String POUMON_FR = "\"poumon\"@fr";
+    private static final String CODE_12 = "\"I12\"^^http://www.w3.org/2001/XMLSchema#string";
+    private static final String CODE_13 = "\"J13\"^^http://www.w3.org/2001/XMLSchema#string";
+
+    private TripleIndex base;
+
+    public TripleIndexTest(final String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(TripleIndexTest.class);
+    }
+
+    @Override
+    protected void setUp() {
+        base = new TripleIndex.Builder()
+                .add(HEART, LABEL, COEUR_FR, "coeur")
+                .add(HEART, LABEL, HEART_EN, "heart")
+                .add(LUNG, LABEL, POUMON_FR, "poumon")
+                .add(HEART, NOTATION, CODE_12, "I12")
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object relation(final TripleIndex index, final String relationURI) throws ReflectiveOperationException {
+        final Field relations = TripleIndex.class.getDeclaredField("relations");
+        relations.setAccessible(true);
+        return ((Map<String, Object>) relations.get(index)).get(relationURI);
+    }
+
+    public void testBaseIndex() {
+        assertEquals(Arrays.asList(COEUR_FR, HEART_EN), base.getObjects(HEART, LABEL));
+        assertEquals(Arrays.asList("coeur", "heart"), base.getLexicalForms(HEART, LABEL));
+        assertEquals(Collections.singletonList(POUMON_FR), base.getObjects(LUNG, LABEL));
+        assertEquals(Collections.singletonList("I12"), base.getLexicalForms(HEART, NOTATION));
+        assertEquals(Collections.emptyList(), base.getObjects(LUNG, NOTATION));
+        assertEquals(Collections.emptyList(), base.getObjects(LIVER, LABEL));
+        assertNull(base.getObjects(HEART, BROADER));
+        assertNull(base.getRelation(BROADER));
+    }
+
+    public void testExtensionSharesTheBaseRelations() throws ReflectiveOperationException {
+        final TripleIndex extended = new TripleIndex.Builder(base)
+                .add(LUNG, BROADER, ORGAN, ORGAN)
+                .build();
+        assertSame(relation(base, LABEL), relation(extended, LABEL));
+        assertSame(relation(base, NOTATION), relation(extended, NOTATION));
+        assertEquals(base.getObjects(HEART, LABEL), extended.getObjects(HEART, LABEL));
+        assertEquals(base.getLexicalForms(HEART, NOTATION), extended.getLexicalForms(HEART, NOTATION));
+        assertTrue(extended.isPrefetched(BROADER));
+        assertFalse(base.isPrefetched(BROADER));
+    }
+
+    /**
+     * The subjects that only appear in the new relations have no offsets in the base relations
+     */
+    public void testSubjectsAppendedAfterARelation() {
+        final TripleIndex extended = new TripleIndex.Builder(base)
+                .add(LIVER, BROADER, ORGAN, ORGAN)
+                .add(ORGAN, BROADER, HEART, HEART)
+                .add(LUNG, BROADER, ORGAN, ORGAN)
+                .build();
+        assertEquals(base.getSubjectCount() + 2, extended.getSubjectCount());
+        assertEquals(Collections.emptyList(), extended.getObjects(LIVER, LABEL));
+        assertEquals(Collections.emptyList(), extended.getLexicalForms(ORGAN, NOTATION));
+        assertEquals(Collections.singletonList(ORGAN), extended.getObjects(LIVER, BROADER));
+        assertEquals(Collections.singletonList(HEART), extended.getObjects(ORGAN, BROADER));
+        assertEquals(Collections.singletonList(ORGAN), extended.getObjects(LUNG, BROADER));
+        assertEquals(Collections.emptyList(), extended.getObjects(HEART, BROADER));
+        assertEquals(Collections.singletonList(POUMON_FR), extended.getObjects(LUNG, LABEL));
+
+        final Map<String, List<String>> labels = new HashMap<>();
+        labels.put(HEART, Arrays.asList(COEUR_FR, HEART_EN));
+        labels.put(LUNG, Collections.singletonList(POUMON_FR));
+        assertEquals(labels, new HashMap<>(extended.getRelation(LABEL)));
+    }
+
+    public void testReplacedBaseRelation() {
+        final TripleIndex extended = new TripleIndex.Builder(base)
+                .add(LUNG, NOTATION, CODE_13, "J13")
+                .build();
+        assertEquals(Collections.emptyList(), extended.getObjects(HEART, NOTATION));
+        assertEquals(Collections.singletonList("J13"), extended.getLexicalForms(LUNG, NOTATION));
+        assertEquals(Collections.singletonList("I12"), base.getLexicalForms(HEART, NOTATION));
+        assertEquals(base.getObjects(HEART, LABEL), extended.getObjects(HEART, LABEL));
+    }
+
+    /**
+     * Literals with the same lexical form but different language tags are distinct objects, an object of a new
+     * relation that is already in the dictionary keeps its id and its lexical form
+     */
+    public void testLexicalFormsOfTypedAndTaggedLiterals() {
+        final TripleIndex extended = new TripleIndex.Builder(base)
+                .add(HEART, BROADER, COEUR_EN, "coeur")
+                .add(HEART, BROADER, CODE_12, "I12")
+                .add(LIVER, BROADER, CODE_13, "J13")
+                .build();
+        assertEquals(base.getTermCount() + 2, extended.getTermCount());
+        assertEquals(Arrays.asList(CODE_12, COEUR_EN), extended.getObjects(HEART, BROADER));
+        assertEquals(Arrays.asList("I12", "coeur"), extended.getLexicalForms(HEART, BROADER));
+        assertEquals(Collections.singletonList("J13"), extended.getLexicalForms(LIVER, BROADER));
+        assertEquals(Arrays.asList("coeur", "heart"), extended.getLexicalForms(HEART, LABEL));
+        assertEquals(Collections.singletonList("poumon"), extended.getLexicalForms(LUNG, LABEL));
+    }
+}
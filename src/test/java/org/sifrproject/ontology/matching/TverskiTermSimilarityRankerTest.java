@@ -0,0 +1,99 @@
+package org.sifrproject.ontology.matching;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.sifrproject.ontology.umls.UMLSLanguageCode;
+import org.sifrproject.utils.cache.EmbeddedCacheBackend;
+import org.sifrproject.utils.cache.TwoTierCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The top-k ranking must return the same best term as the ranking of the whole list, on terms that only match the
+ * label approximately (inflections, accents, spelling variants)
+ */
+public class TverskiTermSimilarityRankerTest extends TestCase {
+
+    private static final List<String> TERMS = Arrays.asList(
+            "insuffisance cardiaque",
+            "insuffisances cardiaques aigu\u00ebs",
+            "insuffisance cardiaque congestive chronique gauche",
+            "insuffisance renale aigue",
+            "cardiopathie",
+            "cardiac insufficiency",
+            "acute heart failure",
+            "heart failures",
+            "fracture du col du femur",
+            "fractures femorales",
+            "diabete de type 2",
+            "diab\u00e8te sucr\u00e9 de type II");
+
+    private static final List<String> LABELS = Arrays.asList(
+            "insuffisance cardiaque aigue",
+            "Insuffisance cardiaque aigu\u00eb",
+            "insufisance cardiac",
+            "heart failure, acute",
+            "fracture f\u00e9morale",
+            "diabetes type 2",
+            "cardiopathies");
+
+    private TwoTierCache rankingCache;
+    private TwoTierCache topCache;
+    private TverskiTermSimilarityRanker rankingRanker;
+    private TverskiTermSimilarityRanker topRanker;
+
+    public TverskiTermSimilarityRankerTest(final String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(TverskiTermSimilarityRankerTest.class);
+    }
+
+    /**
+     * One ranker per ranking, so that the scores of one ranking are not read from the cache by the other
+     */
+    @Override
+    protected void setUp() throws IOException {
+        rankingCache = new TwoTierCache(new EmbeddedCacheBackend(Files.createTempDirectory("ranking-cache")), 0);
+        topCache = new TwoTierCache(new EmbeddedCacheBackend(Files.createTempDirectory("top-cache")), 0);
+        final SemanticSignatureCache signatureCache = new SemanticSignatureCache(0);
+        rankingRanker = new TverskiTermSimilarityRanker(rankingCache, signatureCache, 0L, 0L);
+        topRanker = new TverskiTermSimilarityRanker(topCache, signatureCache, 0L, 0L);
+    }
+
+    @Override
+    protected void tearDown() {
+        rankingRanker.release();
+        topRanker.release();
+        rankingCache.close();
+        topCache.close();
+    }
+
+    private static List<CUITerm> terms() {
+        final SemanticSignatureCache signatureCache = new SemanticSignatureCache(0);
+        final List<CUITerm> terms = new ArrayList<>();
+        for (int i = 0; i < TERMS.size(); i++) {
+            terms.add(new CUITermImpl(String.format("C%07d", i), TERMS.get(i), UMLSLanguageCode.FRENCH,
+                    signatureCache.createSignature(TERMS.get(i), null)));
+        }
+        return terms;
+    }
+
+    public void testMostSimilarIsFirstOfRanking() {
+        for (final String label : LABELS) {
+            final List<CUITerm> ranking = terms();
+            rankingRanker.rankBySimilarity(ranking, label);
+            final List<CUITerm> best = topRanker.getMostSimilar(terms(), label, 1);
+
+            assertEquals(label, 1, best.size());
+            assertEquals(label, ranking.get(0).getTerm(), best.get(0).getTerm());
+            assertEquals(label, ranking.get(0).getScore(), best.get(0).getScore(), 0d);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.sifrproject.utils.cache;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The on-disk format of the embedded cache: the entries must survive a reopening, through the segment roll-over, the
+ * compaction at opening and the recovery from a partially written record
+ */
+public class EmbeddedCacheBackendTest extends TestCase {
+
+    private static final int LARGE_VALUE_SIZE = 1 << 20;
+
+    private Path directory;
+
+    public EmbeddedCacheBackendTest(final String testName) {
+        super(testName);
+    }
+
+    public static Test suite() {
+        return new TestSuite(EmbeddedCacheBackendTest.class);
+    }
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("embedded-cache");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (final Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static byte[] value(final int seed, final int size) {
+        final byte[] value = new byte[size];
+        Arrays.fill(value, (byte) (seed + 1));
+        return value;
+    }
+
+    private List<Path> segments() throws IOException {
+        final List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.log")) {
+            for (final Path file : files) {
+                segments.add(file);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    public void testWriteReopenOverwrite() throws IOException {
+        EmbeddedCacheBackend backend = new EmbeddedCacheBackend(directory);
+        backend.putBinary("a", value(1, 10));
+        backend.putBinary("b", value(2, 20));
+        backend.putBinary("a", value(3, 30));
+        assertEquals(5L, backend.incrementCounter("counter", 5L));
+        assertEquals(6L, backend.incrementCounter("counter"));
+        backend.close();
+
+        backend = new EmbeddedCacheBackend(directory);
+        assertTrue(Arrays.equals(value(3, 30), backend.getBinary("a")));
+        assertTrue(Arrays.equals(value(2, 20), backend.getBinary("b")));
+        assertNull(backend.getBinary("c"));
+        assertEquals(6L, backend.getCounter("counter"));
+        assertEquals(0L, backend.getCounter("other counter"));
+        //A counter is not readable as a binary value
+        assertNull(backend.getBinary("counter"));
+        backend.close();
+    }
+
+    public void testDeletePrefix() throws IOException {
+        EmbeddedCacheBackend backend = new EmbeddedCacheBackend(directory);
+        backend.putBinary("scores#0:a", value(1, 10));
+        backend.putBinary("scores#0:b", value(2, 10));
+        backend.putBinary("scores#1:a", value(3, 10));
+        backend.incrementCounter("scores#0:entries", 2L);
+        backend.deletePrefix("scores#0:");
+        assertNull(backend.getBinary("scores#0:a"));
+        assertEquals(0L, backend.getCounter("scores#0:entries"));
+        //Written after the deletion
+        backend.putBinary("scores#0:c", value(4, 10));
+        backend.close();
+
+        backend = new EmbeddedCacheBackend(directory);
+        assertNull(backend.getBinary("scores#0:a"));
+        assertNull(backend.getBinary("scores#0:b"));
+        assertEquals(0L, backend.getCounter("scores#0:entries"));
+        assertTrue(Arrays.equals(value(3, 10), backend.getBinary("scores#1:a")));
+        assertTrue(Arrays.equals(value(4, 10), backend.getBinary("scores#0:c")));
+        backend.close();
+    }
+
+    /**
+     * Three generations of values over two segments: the garbage exceeds half of the log, the live values are copied
+     * to a new segment when the store is opened again
+     */
+    public void testRollOverAndCompaction() throws IOException {
+        final int keyCount = ((EmbeddedCacheBackend.SEGMENT_SIZE / LARGE_VALUE_SIZE) / 3) + 4;
+        EmbeddedCacheBackend backend = new EmbeddedCacheBackend(directory);
+        for (int generation = 0; generation < 3; generation++) {
+            for (int key = 0; key < keyCount; key++) {
+                backend.putBinary("key" + key, value(generation + key, LARGE_VALUE_SIZE));
+            }
+        }
+        backend.incrementCounter("counter", 42L);
+        backend.close();
+        final List<Path> writtenSegments = segments();
+        assertEquals(2, writtenSegments.size());
+
+        backend = new EmbeddedCacheBackend(directory);
+        final List<Path> compactedSegments = segments();
+        assertEquals(1, compactedSegments.size());
+        assertFalse(writtenSegments.contains(compactedSegments.get(0)));
+        for (int key = 0; key < keyCount; key++) {
+            assertTrue(Arrays.equals(value(2 + key, LARGE_VALUE_SIZE), backend.getBinary("key" + key)));
+        }
+        assertEquals(42L, backend.getCounter("counter"));
+        backend.close();
+
+        backend = new EmbeddedCacheBackend(directory);
+        assertEquals(compactedSegments, segments());
+        assertTrue(Arrays.equals(value(2, LARGE_VALUE_SIZE), backend.getBinary("key0")));
+        backend.close();
+    }
+
+    /**
+     * A crash in the middle of a write leaves a truncated last record, which is ignored when the store is opened
+     * again; the next writes go on after the complete records
+     */
+    public void testTruncatedLastRecord() throws IOException {
+        EmbeddedCacheBackend backend = new EmbeddedCacheBackend(directory);
+        backend.putBinary("complete", value(1, 100));
+        backend.putBinary("truncated", value(2, 100));
+        backend.close();
+
+        //The segment is zero-filled after the records, the last non-zero byte ends the last value
+        final Path segment = segments().get(0);
+        final long lastRecordEnd;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int end = bytes.capacity();
+            while (bytes.get(end - 1) == 0) {
+                end--;
+            }
+            lastRecordEnd = end;
+            channel.truncate(lastRecordEnd - 1);
+        }
+
+        backend = new EmbeddedCacheBackend(directory);
+        assertTrue(Arrays.equals(value(1, 100), backend.getBinary("complete")));
+        assertNull(backend.getBinary("truncated"));
+        backend.putBinary("after", value(3, 100));
+        backend.close();
+
+        backend = new EmbeddedCacheBackend(directory);
+        assertTrue(Arrays.equals(value(1, 100), backend.getBinary("complete")));
+        assertNull(backend.getBinary("truncated"));
+        assertTrue(Arrays.equals(value(3, 100), backend.getBinary("after")));
+        backend.close();
+    }
+}